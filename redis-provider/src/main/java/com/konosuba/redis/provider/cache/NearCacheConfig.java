@@ -0,0 +1,108 @@
+package com.konosuba.redis.provider.cache;
+
+import com.konosuba.redis.provider.config.RedisServiceDecoratorConfig;
+import com.konosuba.redis.provider.service.RedisService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Properties;
+
+/**
+ * 本地缓存配置，redis.provider.near-cache.enabled=true 时生效
+ * <p>
+ * 开启后注入 RedisService 的地方拿到的都是带本地缓存的实现。只支持单机和哨兵：集群的 keyspace 通知只发给
+ * key 所在节点的订阅者，订阅一个节点收不到其他节点的修改，所以配置了 spring.redis.cluster.nodes 时启动失败
+ *
+ * @author konosuba
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "redis.provider.near-cache", name = "enabled", havingValue = "true")
+public class NearCacheConfig {
+    /**
+     * 失效需要的 keyspace 通知：K 键空间，g 通用命令，$ string，h hash，x 过期，e 淘汰
+     */
+    private static final String NOTIFY_FLAGS = "Kg$hxe";
+
+    /**
+     * 最多缓存的 key 数量
+     */
+    @Value("${redis.provider.near-cache.maximum-size:10000}")
+    private long maximumSize;
+    /**
+     * 本地缓存最长保留时间（毫秒），也是丢失失效通知时读到旧值的最长时间
+     */
+    @Value("${redis.provider.near-cache.max-ttl-millis:5000}")
+    private long maxTtlMillis;
+    /**
+     * 启动时是否通过 CONFIG SET 打开 keyspace 通知，没有 CONFIG 权限时在 redis 上手动配置
+     */
+    @Value("${redis.provider.near-cache.configure-notifications:false}")
+    private boolean configureNotifications;
+
+    /**
+     * 将带本地缓存的 RedisService 注册到容器中
+     *
+     * @param redisService 直接访问 redis 的 RedisService，已经套上了 RedisServiceDecorator
+     * @return NearCacheRedisService 对象
+     */
+    @Bean
+    @Primary
+    public NearCacheRedisService nearCacheRedisService(@Qualifier(RedisServiceDecoratorConfig.REDIS_SERVICE_BEAN) RedisService redisService) {
+        return new NearCacheRedisService(redisService, maximumSize, maxTtlMillis);
+    }
+
+    /**
+     * 订阅当前数据库的 keyspace 通知，key 被修改时让本地缓存失效
+     *
+     * @param factory               RedisConnectionFactory 工厂
+     * @param redisProperties       redis 配置
+     * @param nearCacheRedisService 带本地缓存的 RedisService
+     * @return RedisMessageListenerContainer 对象
+     */
+    @Bean
+    public RedisMessageListenerContainer nearCacheListenerContainer(RedisConnectionFactory factory,
+                                                                    RedisProperties redisProperties,
+                                                                    NearCacheRedisService nearCacheRedisService) {
+        RedisProperties.Cluster cluster = redisProperties.getCluster();
+        if (cluster != null && cluster.getNodes() != null && !cluster.getNodes().isEmpty()) {
+            throw new IllegalStateException("集群模式下 keyspace 通知只在 key 所在的节点发出，本地缓存无法及时失效，"
+                    + "请关闭 redis.provider.near-cache.enabled");
+        }
+        if (configureNotifications) {
+            enableKeyspaceNotifications(factory);
+        }
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener(nearCacheRedisService,
+                new PatternTopic("__keyspace@" + redisProperties.getDatabase() + "__:*"));
+        return container;
+    }
+
+    /**
+     * 在 redis 现有的 notify-keyspace-events 上补充需要的标记
+     */
+    private void enableKeyspaceNotifications(RedisConnectionFactory factory) {
+        try (RedisConnection connection = factory.getConnection()) {
+            Properties config = connection.getConfig("notify-keyspace-events");
+            String flags = config == null ? "" : config.getProperty("notify-keyspace-events", "");
+            StringBuilder merged = new StringBuilder(flags);
+            for (char flag : NOTIFY_FLAGS.toCharArray()) {
+                if (merged.indexOf(String.valueOf(flag)) < 0) {
+                    merged.append(flag);
+                }
+            }
+            if (merged.length() != flags.length()) {
+                connection.setConfig("notify-keyspace-events", merged.toString());
+            }
+        }
+    }
+}
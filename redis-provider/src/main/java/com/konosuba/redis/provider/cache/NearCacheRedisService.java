@@ -0,0 +1,540 @@
+package com.konosuba.redis.provider.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.konosuba.redis.provider.service.ForwardingRedisService;
+import com.konosuba.redis.provider.service.PipelineResult;
+import com.konosuba.redis.provider.service.RedisPipeline;
+import com.konosuba.redis.provider.service.RedisService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * 带本地缓存的 RedisService，缓存 get 和 hGet 的结果
+ * <p>
+ * 每个 key 的本地过期时间取 max-ttl 和 redis 剩余过期时间中较小的一个，本地缓存不会比 redis 中的值活得更久。
+ * 其他实例的修改通过 keyspace 通知失效，本实例的修改在写入后立即失效；
+ * 通知丢失时（比如订阅连接断开）最多读到 max-ttl 时间内的旧值
+ *
+ * @author konosuba
+ */
+public class NearCacheRedisService extends ForwardingRedisService implements MessageListener, MeterBinder {
+    /**
+     * 还没有加载过的值
+     */
+    private static final Object NOT_LOADED = new Object();
+    /**
+     * redis 中不存在的值
+     */
+    private static final Object NULL = new Object();
+    private static final int STRIPES = 1024;
+
+    private final RedisService delegate;
+    private final long maxTtlMillis;
+    private final Cache<String, Entry> cache;
+    /**
+     * 按 key 分段的失效版本号，加载期间 key 被失效时不把旧值放进缓存
+     */
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+
+    public NearCacheRedisService(RedisService delegate, long maximumSize, long maxTtlMillis) {
+        this.delegate = delegate;
+        this.maxTtlMillis = maxTtlMillis;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return entry.ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return entry.ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    protected RedisService delegate() {
+        return delegate;
+    }
+
+    /**
+     * 主节点视图用于读自己刚写入的值，直接访问 redis，不经过本地缓存
+     */
+    @Override
+    public RedisService master() {
+        return delegate.master();
+    }
+
+    @Override
+    public Object get(String key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && entry.value != NOT_LOADED) {
+            return unmask(entry.value);
+        }
+        long version = version(key);
+        List<Object> results = delegate.pipeline(pipeline -> {
+            pipeline.get(key);
+            pipeline.getExpire(key, TimeUnit.MILLISECONDS);
+        });
+        Object value = results.get(0);
+        Entry loaded = entry(key, (Long) results.get(1));
+        if (loaded != null) {
+            loaded.value = mask(value);
+            recheck(key, version);
+        }
+        return value;
+    }
+
+    @Override
+    public Object hGet(String key, String field) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            Object cached = entry.fields.get(field);
+            if (cached != null) {
+                return unmask(cached);
+            }
+        }
+        long version = version(key);
+        List<Object> results = delegate.pipeline(pipeline -> {
+            pipeline.hGet(key, field);
+            pipeline.getExpire(key, TimeUnit.MILLISECONDS);
+        });
+        Object value = results.get(0);
+        Entry loaded = entry(key, (Long) results.get(1));
+        if (loaded != null) {
+            loaded.fields.put(field, mask(value));
+            recheck(key, version);
+        }
+        return value;
+    }
+
+    /**
+     * keyspace 通知，频道为 __keyspace@db__:key
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        invalidate(channel.substring(channel.indexOf(':') + 1));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "redis.near-cache");
+    }
+
+    /**
+     * 让本地缓存中的 key 失效
+     *
+     * @param key key
+     */
+    public void invalidate(String key) {
+        versions.incrementAndGet(stripe(key));
+        cache.invalidate(key);
+    }
+
+    // 本实例的写操作，写入后立即失效
+
+    /**
+     * 管道中写过的 key 在管道执行后失效，管道执行失败时也失效
+     */
+    @Override
+    public List<Object> pipeline(Consumer<RedisPipeline> commands) {
+        Set<String> written = new HashSet<>();
+        try {
+            return delegate.pipeline(pipeline -> commands.accept(new InvalidatingPipeline(pipeline, written)));
+        } finally {
+            written.forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public Boolean delete(String key) {
+        try {
+            return delegate.delete(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long delete(Collection<String> keys) {
+        try {
+            return delegate.delete(keys);
+        } finally {
+            keys.forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public <T> T executeScript(String name, Class<T> resultType, List<String> keys, Object... args) {
+        try {
+            return delegate.executeScript(name, resultType, keys, args);
+        } finally {
+            keys.forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public Boolean expire(String key, long timeout, TimeUnit timeUnit) {
+        try {
+            return delegate.expire(key, timeout, timeUnit);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Boolean expireAt(String key, Date date) {
+        try {
+            return delegate.expireAt(key, date);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Boolean move(String key, int dbIndex) {
+        try {
+            return delegate.move(key, dbIndex);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Boolean persist(String key) {
+        try {
+            return delegate.persist(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public void rename(String oldKey, String newKey) {
+        try {
+            delegate.rename(oldKey, newKey);
+        } finally {
+            invalidate(oldKey);
+            invalidate(newKey);
+        }
+    }
+
+    @Override
+    public Boolean renameIfAbsent(String oldKey, String newKey) {
+        try {
+            return delegate.renameIfAbsent(oldKey, newKey);
+        } finally {
+            invalidate(oldKey);
+            invalidate(newKey);
+        }
+    }
+
+    @Override
+    public void set(String key, Object value) {
+        try {
+            delegate.set(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Object getAndSet(String key, String value) {
+        try {
+            return delegate.getAndSet(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Boolean setBit(String key, long offset, boolean value) {
+        try {
+            return delegate.setBit(key, offset, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public void set(String key, String value, long timeout, TimeUnit timeUnit) {
+        try {
+            delegate.set(key, value, timeout, timeUnit);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Boolean setIfAbsent(String key, String value) {
+        try {
+            return delegate.setIfAbsent(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Boolean setIfAbsent(String key, String value, long timeout, TimeUnit timeUnit) {
+        try {
+            return delegate.setIfAbsent(key, value, timeout, timeUnit);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public void set(String key, String value, long offset) {
+        try {
+            delegate.set(key, value, offset);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public void multiSet(Map<String, String> maps) {
+        try {
+            delegate.multiSet(maps);
+        } finally {
+            maps.keySet().forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public Boolean multiSetIfAbsent(Map<String, String> maps) {
+        try {
+            return delegate.multiSetIfAbsent(maps);
+        } finally {
+            maps.keySet().forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public Long incrBy(String key, long increment) {
+        try {
+            return delegate.incrBy(key, increment);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Double incrByDouble(String key, double increment) {
+        try {
+            return delegate.incrByDouble(key, increment);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Integer append(String key, String value) {
+        try {
+            return delegate.append(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public void hPut(String key, String hashKey, Object value) {
+        try {
+            delegate.hPut(key, hashKey, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public void hPutAll(String key, Map<String, String> maps) {
+        try {
+            delegate.hPutAll(key, maps);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Boolean hPutIfAbsent(String key, String hashKey, Object value) {
+        try {
+            return delegate.hPutIfAbsent(key, hashKey, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long hDelete(String key, Object... fields) {
+        try {
+            return delegate.hDelete(key, fields);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Long hIncrBy(String key, String field, long increment) {
+        try {
+            return delegate.hIncrBy(key, field, increment);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Double hIncrByDouble(String key, String field, Double increment) {
+        try {
+            return delegate.hIncrByDouble(key, field, increment);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * 取出或创建 key 的缓存项，redis 剩余过期时间为 0 时不缓存
+     *
+     * @param key  key
+     * @param pttl redis 剩余过期时间（毫秒），-1 表示没有过期时间，-2 表示 key 不存在
+     * @return 缓存项，不缓存时返回 null
+     */
+    private Entry entry(String key, Long pttl) {
+        long ttlMillis = pttl == null || pttl < 0 ? maxTtlMillis : Math.min(maxTtlMillis, pttl);
+        if (ttlMillis <= 0) {
+            return null;
+        }
+        return cache.get(key, k -> new Entry(TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+    }
+
+    /**
+     * 加载期间 key 被失效过，刚放进去的值可能已经是旧值
+     */
+    private void recheck(String key, long version) {
+        if (version(key) != version) {
+            cache.invalidate(key);
+        }
+    }
+
+    private long version(String key) {
+        return versions.get(stripe(key));
+    }
+
+    private static int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    private static Object mask(Object value) {
+        return value == null ? NULL : value;
+    }
+
+    private static Object unmask(Object value) {
+        return value == NULL ? null : value;
+    }
+
+    /**
+     * 记录写命令的 key，读命令直接转发
+     */
+    private static final class InvalidatingPipeline implements RedisPipeline {
+        private final RedisPipeline pipeline;
+        private final Set<String> written;
+
+        InvalidatingPipeline(RedisPipeline pipeline, Set<String> written) {
+            this.pipeline = pipeline;
+            this.written = written;
+        }
+
+        @Override
+        public PipelineResult<Object> get(String key) {
+            return pipeline.get(key);
+        }
+
+        @Override
+        public PipelineResult<Boolean> set(String key, Object value, long timeout, TimeUnit timeUnit) {
+            written.add(key);
+            return pipeline.set(key, value, timeout, timeUnit);
+        }
+
+        @Override
+        public PipelineResult<Boolean> setIfAbsent(String key, Object value, long timeout, TimeUnit timeUnit) {
+            written.add(key);
+            return pipeline.setIfAbsent(key, value, timeout, timeUnit);
+        }
+
+        @Override
+        public PipelineResult<Long> delete(String key) {
+            written.add(key);
+            return pipeline.delete(key);
+        }
+
+        @Override
+        public PipelineResult<Boolean> expire(String key, long timeout, TimeUnit timeUnit) {
+            written.add(key);
+            return pipeline.expire(key, timeout, timeUnit);
+        }
+
+        @Override
+        public PipelineResult<Long> getExpire(String key, TimeUnit timeUnit) {
+            return pipeline.getExpire(key, timeUnit);
+        }
+
+        @Override
+        public PipelineResult<Long> incrBy(String key, long increment) {
+            written.add(key);
+            return pipeline.incrBy(key, increment);
+        }
+
+        @Override
+        public PipelineResult<Object> hGet(String key, String field) {
+            return pipeline.hGet(key, field);
+        }
+
+        @Override
+        public PipelineResult<Boolean> hPut(String key, String hashKey, Object value) {
+            written.add(key);
+            return pipeline.hPut(key, hashKey, value);
+        }
+
+        @Override
+        public PipelineResult<Boolean> zAdd(String key, Object value, double score) {
+            written.add(key);
+            return pipeline.zAdd(key, value, score);
+        }
+    }
+
+    /**
+     * 一个 redis key 的缓存，string 的值和 hash 中已经读取过的字段
+     */
+    private static final class Entry {
+        final long ttlNanos;
+        volatile Object value = NOT_LOADED;
+        final ConcurrentMap<String, Object> fields = new ConcurrentHashMap<>();
+
+        Entry(long ttlNanos) {
+            this.ttlNanos = ttlNanos;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.konosuba.redis.provider.cluster;
+
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanCursor;
+import org.springframework.data.redis.core.ScanIteration;
+import org.springframework.data.redis.core.ScanOptions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 集群模式下的 SCAN，按 clusterGetNodes() 中的主节点逐个扫描
+ * <p>
+ * 集群连接的 scan 会直接抛出异常（一个游标覆盖不了多个节点）。这里一个节点扫完再开始下一个，
+ * 任何时候只持有一个节点的游标；close 时关闭游标和集群连接
+ *
+ * @author konosuba
+ */
+public class ClusterKeyScanner implements Iterator<byte[]>, Closeable {
+    private final RedisClusterConnection connection;
+    private final ScanArgs scanArgs;
+    private final Iterator<RedisClusterNode> masters;
+    private Cursor<byte[]> current;
+
+    public ClusterKeyScanner(RedisClusterConnection connection, ScanOptions options) {
+        this.connection = connection;
+        this.scanArgs = new ScanArgs();
+        if (options.getPattern() != null) {
+            scanArgs.match(options.getPattern());
+        }
+        if (options.getCount() != null) {
+            scanArgs.limit(options.getCount());
+        }
+        List<RedisClusterNode> nodes = new ArrayList<>();
+        for (RedisClusterNode node : connection.clusterGetNodes()) {
+            if (node.isMaster() && !node.isMarkedAsFail()) {
+                nodes.add(node);
+            }
+        }
+        this.masters = nodes.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (current == null || !current.hasNext()) {
+            closeCurrent();
+            if (!masters.hasNext()) {
+                return false;
+            }
+            current = scan(masters.next());
+        }
+        return true;
+    }
+
+    @Override
+    public byte[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            closeCurrent();
+        } finally {
+            connection.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cursor<byte[]> scan(RedisClusterNode node) {
+        RedisAdvancedClusterAsyncCommands<byte[], byte[]> nativeConnection =
+                (RedisAdvancedClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+        RedisCommands<byte[], byte[]> commands = nativeConnection.getStatefulConnection()
+                .getConnection(node.getId()).sync();
+        ScanCursor<byte[]> cursor = new ScanCursor<byte[]>() {
+            @Override
+            protected ScanIteration<byte[]> doScan(long cursorId, ScanOptions options) {
+                KeyScanCursor<byte[]> result = commands.scan(
+                        io.lettuce.core.ScanCursor.of(Long.toString(cursorId)), scanArgs);
+                return new ScanIteration<>(Long.parseLong(result.getCursor()), result.getKeys());
+            }
+        };
+        cursor.open();
+        return cursor;
+    }
+
+    private void closeCurrent() {
+        if (current == null) {
+            return;
+        }
+        try {
+            current.close();
+        } catch (IOException e) {
+            // 游标只在内存中，关闭不会失败
+        } finally {
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.konosuba.redis.provider.cluster;
+
+/**
+ * 构造带 hash tag 的 key
+ * <p>
+ * 集群只对 {} 中的部分计算 slot，同一个 tag 的 key 落在同一个 slot，可以一起用在 MGET、lua 脚本等多 key 命令中
+ *
+ * @author konosuba
+ */
+public final class RedisKeys {
+
+    private RedisKeys() {
+    }
+
+    /**
+     * 构造 prefix:{tag} 格式的 key
+     *
+     * @param prefix 前缀，比如 sms:cooldown
+     * @param tag    参与 slot 计算的部分，比如手机号
+     * @return key
+     */
+    public static String tagged(String prefix, String tag) {
+        return prefix + ":{" + tag + "}";
+    }
+
+    /**
+     * 构造 prefix:{tag}:suffix 格式的 key
+     *
+     * @param prefix 前缀
+     * @param tag    参与 slot 计算的部分
+     * @param suffix 后缀
+     * @return key
+     */
+    public static String tagged(String prefix, String tag, String suffix) {
+        return prefix + ":{" + tag + "}:" + suffix;
+    }
+}
@@ -0,0 +1,132 @@
+package com.konosuba.redis.provider.cluster;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 集群模式下把多 key 命令按 slot 拆开并行执行
+ * <p>
+ * 同一个 slot 的 key 仍然合成一条命令，不同 slot 的命令并行发到各自的节点，
+ * 不会因为 key 分布在不同 slot 返回 CROSSSLOT。单机和哨兵模式下不拆分。
+ * Spring 的集群连接遇到跨 slot 的 MGET、DEL 时每个 key 单独发一条 GET、DEL，跨 slot 的 SINTER 会取回每个集合的全部成员，
+ * 按 slot 合并后命令数等于 slot 数
+ *
+ * @author konosuba
+ */
+@Component
+public class RedisSlotRouter {
+    @Resource
+    private RedisProperties redisProperties;
+    /**
+     * 并行执行各 slot 命令的线程数
+     */
+    @Value("${redis.provider.cluster.fan-out-threads:8}")
+    private int fanOutThreads;
+
+    private boolean clustered;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        RedisProperties.Cluster cluster = redisProperties.getCluster();
+        clustered = cluster != null && cluster.getNodes() != null && !cluster.getNodes().isEmpty();
+        if (clustered) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(fanOutThreads, r -> {
+                Thread thread = new Thread(r, "redis-fan-out-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 是否集群模式
+     *
+     * @return 配置了 spring.redis.cluster.nodes 返回 true
+     */
+    public boolean isClustered() {
+        return clustered;
+    }
+
+    /**
+     * 多个 key 是否都在同一个 slot
+     *
+     * @param keys key 的集合
+     * @return 同一个 slot 返回 true
+     */
+    public boolean isSameSlot(Collection<String> keys) {
+        return ClusterSlotHashUtil.isSameSlotForAllKeys(keys.stream()
+                .map(key -> key.getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new));
+    }
+
+    /**
+     * 按 slot 对 key 分组，组内保持原来的顺序
+     *
+     * @param keys key 的集合
+     * @return slot -> 该 slot 的 key
+     */
+    public Map<Integer, List<String>> groupBySlot(Collection<String> keys) {
+        Map<Integer, List<String>> groups = new LinkedHashMap<>();
+        for (String key : keys) {
+            groups.computeIfAbsent(ClusterSlotHashUtil.calculateSlot(key), slot -> new ArrayList<>()).add(key);
+        }
+        return groups;
+    }
+
+    /**
+     * 对每组 key 并行执行命令，最后一组在当前线程执行
+     *
+     * @param groups  按 slot 分好的 key
+     * @param command 对一组 key 执行的命令
+     * @param <R>     命令的返回值类型
+     * @return 每组的结果，顺序和 groups 一致
+     */
+    public <R> List<R> fanOut(Collection<List<String>> groups, Function<List<String>, R> command) {
+        List<List<String>> groupList = new ArrayList<>(groups);
+        if (groupList.size() == 1) {
+            return Collections.singletonList(command.apply(groupList.get(0)));
+        }
+        List<CompletableFuture<R>> futures = new ArrayList<>(groupList.size());
+        for (int i = 0; i < groupList.size() - 1; i++) {
+            List<String> group = groupList.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> command.apply(group), executor));
+        }
+        R last = command.apply(groupList.get(groupList.size() - 1));
+        List<R> results = new ArrayList<>(groupList.size());
+        try {
+            for (CompletableFuture<R> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        results.add(last);
+        return results;
+    }
+}
@@ -0,0 +1,42 @@
+package com.konosuba.redis.provider.config;
+
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * redis 集群配置，配置了 spring.redis.cluster.nodes 时生效
+ *
+ * @author konosuba
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "spring.redis.cluster", name = "nodes")
+public class RedisClusterConfig {
+    /**
+     * 定时刷新集群拓扑的间隔（秒）
+     */
+    @Value("${redis.provider.cluster.refresh-period-seconds:30}")
+    private long refreshPeriodSeconds;
+
+    /**
+     * 收到 MOVED/ASK 重定向、连接断开时立即刷新拓扑，另外定时刷新，扩容和主从切换后不需要重启
+     *
+     * @return LettuceClientConfigurationBuilderCustomizer 对象
+     */
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer clusterTopologyRefreshCustomizer() {
+        ClusterTopologyRefreshOptions refreshOptions = ClusterTopologyRefreshOptions.builder()
+                .enableAllAdaptiveRefreshTriggers()
+                .enablePeriodicRefresh(Duration.ofSeconds(refreshPeriodSeconds))
+                .build();
+        return builder -> builder.clientOptions(ClusterClientOptions.builder()
+                .topologyRefreshOptions(refreshOptions)
+                .build());
+    }
+}
@@ -1,6 +1,7 @@
 package com.konosuba.redis.provider.config;
 
-import com.alibaba.fastjson.support.spring.FastJsonRedisSerializer;
+import com.konosuba.redis.provider.serializer.RedisValueCodec;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -15,6 +16,17 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
 public class RedisConfig {
+    /**
+     * 值的序列化方式，FASTJSON 或 COMPACT
+     */
+    @Value("${redis.provider.value-codec:FASTJSON}")
+    private RedisValueCodec valueCodec;
+    /**
+     * hash 值的序列化方式，FASTJSON 或 COMPACT
+     */
+    @Value("${redis.provider.hash-value-codec:FASTJSON}")
+    private RedisValueCodec hashValueCodec;
+
     /**
      * 将 RedisTemplate 对象注册到容器中
      *
@@ -31,11 +43,9 @@ public class RedisConfig {
         redisTemplate.setKeySerializer(stringRedisSerializer);
         // 对 Hash 的 key 进行序列化
         redisTemplate.setHashKeySerializer(stringRedisSerializer);
-        // 使用 FastJsonRedisSerializer 来序列化
-        // 对值进行序列化
-        FastJsonRedisSerializer<Object> fastJsonRedisSerializer = new FastJsonRedisSerializer<Object>(Object.class);
-        redisTemplate.setValueSerializer(fastJsonRedisSerializer);
-        redisTemplate.setHashValueSerializer(fastJsonRedisSerializer);
+        // 对值进行序列化，默认使用 FastJsonRedisSerializer
+        redisTemplate.setValueSerializer(valueCodec.serializer());
+        redisTemplate.setHashValueSerializer(hashValueCodec.serializer());
         // 注入到 factory 工厂中
         redisTemplate.setConnectionFactory(factory);
         return redisTemplate;
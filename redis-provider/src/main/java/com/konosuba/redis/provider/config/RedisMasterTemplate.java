@@ -0,0 +1,100 @@
+package com.konosuba.redis.provider.config;
+
+import io.lettuce.core.ReadFrom;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration.LettuceClientConfigurationBuilder;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * 只读主节点的 RedisTemplate
+ * <p>
+ * 读命令配置为读从节点时，先写后读的场景（比如刚写入就要检查的值）需要读主节点，否则可能因为复制延迟读到旧值。
+ * 这里复制一份连接配置，只把 readFrom 改为 MASTER；读命令本来就读主节点时不创建，直接使用默认的 RedisTemplate
+ *
+ * @author konosuba
+ */
+public class RedisMasterTemplate implements DisposableBean {
+    private final LettuceConnectionFactory connectionFactory;
+    private final RedisTemplate<String, Object> template;
+
+    public RedisMasterTemplate(RedisConnectionFactory factory, RedisTemplate<String, Object> redisTemplate, RedisReadFrom readFrom) {
+        if (readFrom == RedisReadFrom.MASTER_ONLY || !(factory instanceof LettuceConnectionFactory)) {
+            // 读命令本来就读主节点
+            this.connectionFactory = null;
+            this.template = redisTemplate;
+            return;
+        }
+        LettuceConnectionFactory source = (LettuceConnectionFactory) factory;
+        if (source.getClusterConfiguration() != null) {
+            connectionFactory = new LettuceConnectionFactory(source.getClusterConfiguration(),
+                    masterClientConfiguration(source.getClientConfiguration(), true));
+        } else if (source.getSentinelConfiguration() != null) {
+            connectionFactory = new LettuceConnectionFactory(source.getSentinelConfiguration(),
+                    masterClientConfiguration(source.getClientConfiguration(), true));
+        } else {
+            // 单机模式不设置 readFrom 时直接连接配置的节点，也就是主节点
+            connectionFactory = new LettuceConnectionFactory(source.getStandaloneConfiguration(),
+                    masterClientConfiguration(source.getClientConfiguration(), false));
+        }
+        connectionFactory.afterPropertiesSet();
+        template = new RedisTemplate<>();
+        template.setKeySerializer(redisTemplate.getKeySerializer());
+        template.setHashKeySerializer(redisTemplate.getHashKeySerializer());
+        template.setValueSerializer(redisTemplate.getValueSerializer());
+        template.setHashValueSerializer(redisTemplate.getHashValueSerializer());
+        template.setConnectionFactory(connectionFactory);
+        template.afterPropertiesSet();
+    }
+
+    /**
+     * 只读主节点的 RedisTemplate
+     *
+     * @return RedisTemplate 对象
+     */
+    public RedisTemplate<String, Object> getTemplate() {
+        return template;
+    }
+
+    /**
+     * 是否和默认的 RedisTemplate 是同一个
+     *
+     * @return 没有单独创建连接时返回 true
+     */
+    public boolean isDefault() {
+        return connectionFactory == null;
+    }
+
+    @Override
+    public void destroy() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    private static LettuceClientConfiguration masterClientConfiguration(LettuceClientConfiguration source, boolean readFromMaster) {
+        LettuceClientConfigurationBuilder builder = source instanceof LettucePoolingClientConfiguration
+                ? LettucePoolingClientConfiguration.builder().poolConfig(((LettucePoolingClientConfiguration) source).getPoolConfig())
+                : LettuceClientConfiguration.builder();
+        if (source.isUseSsl()) {
+            LettuceClientConfiguration.LettuceSslClientConfigurationBuilder ssl = builder.useSsl();
+            if (!source.isVerifyPeer()) {
+                ssl.disablePeerVerification();
+            }
+            if (source.isStartTls()) {
+                ssl.startTls();
+            }
+        }
+        source.getClientResources().ifPresent(builder::clientResources);
+        source.getClientOptions().ifPresent(builder::clientOptions);
+        source.getClientName().ifPresent(builder::clientName);
+        builder.commandTimeout(source.getCommandTimeout()).shutdownTimeout(source.getShutdownTimeout());
+        if (readFromMaster) {
+            builder.readFrom(ReadFrom.MASTER);
+        }
+        return builder.build();
+    }
+}
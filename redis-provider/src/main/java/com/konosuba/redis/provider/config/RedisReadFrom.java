@@ -0,0 +1,35 @@
+package com.konosuba.redis.provider.config;
+
+import io.lettuce.core.ReadFrom;
+
+/**
+ * 读命令发往哪个节点
+ * <p>
+ * 哨兵和集群模式按各自的拓扑选择节点，单机模式下 Lettuce 通过 INFO replication 自动发现配置的节点的从节点
+ *
+ * @author konosuba
+ */
+public enum RedisReadFrom {
+    /**
+     * 只读主节点
+     */
+    MASTER_ONLY(ReadFrom.MASTER),
+    /**
+     * 优先读从节点，没有可用的从节点时读主节点
+     */
+    REPLICA_PREFERRED(ReadFrom.REPLICA_PREFERRED),
+    /**
+     * 读延迟最低的节点，主从都可能
+     */
+    NEAREST(ReadFrom.NEAREST);
+
+    private final ReadFrom readFrom;
+
+    RedisReadFrom(ReadFrom readFrom) {
+        this.readFrom = readFrom;
+    }
+
+    public ReadFrom toReadFrom() {
+        return readFrom;
+    }
+}
@@ -0,0 +1,52 @@
+package com.konosuba.redis.provider.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * 读写分离配置
+ * <p>
+ * redis.provider.read-from 决定只读命令（GET、HGETALL、ZRANGE、SMEMBERS、LRANGE ...）发往哪个节点，
+ * 写命令和 lua 脚本始终发往主节点；需要读到刚写入的值时通过 RedisService.master() 读主节点
+ *
+ * @author konosuba
+ */
+@Configuration
+public class RedisReadFromConfig {
+    /**
+     * MASTER_ONLY、REPLICA_PREFERRED 或 NEAREST
+     */
+    @Value("${redis.provider.read-from:MASTER_ONLY}")
+    private RedisReadFrom readFrom;
+
+    /**
+     * 将 readFrom 应用到自动配置的连接上
+     *
+     * @return LettuceClientConfigurationBuilderCustomizer 对象
+     */
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer readFromCustomizer() {
+        return builder -> {
+            // MASTER_ONLY 时保持默认的连接方式，不设置 readFrom
+            if (readFrom != RedisReadFrom.MASTER_ONLY) {
+                builder.readFrom(readFrom.toReadFrom());
+            }
+        };
+    }
+
+    /**
+     * 将只读主节点的 RedisTemplate 注册到容器中
+     *
+     * @param factory       RedisConnectionFactory 工厂
+     * @param redisTemplate 默认的 RedisTemplate
+     * @return RedisMasterTemplate 对象
+     */
+    @Bean
+    public RedisMasterTemplate redisMasterTemplate(RedisConnectionFactory factory, RedisTemplate<String, Object> redisTemplate) {
+        return new RedisMasterTemplate(factory, redisTemplate, readFrom);
+    }
+}
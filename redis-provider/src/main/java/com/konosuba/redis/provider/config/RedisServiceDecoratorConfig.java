@@ -0,0 +1,50 @@
+package com.konosuba.redis.provider.config;
+
+import com.konosuba.redis.provider.service.RedisService;
+import com.konosuba.redis.provider.service.RedisServiceDecorator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * RedisService 装饰器的唯一注册点，所有 RedisServiceDecorator 按 order 依次包装 redisServiceImpl
+ *
+ * @author konosuba
+ */
+@Configuration
+public class RedisServiceDecoratorConfig {
+    /**
+     * 直接访问 redis 的 RedisServiceImpl 的 bean 名称，本地缓存也按这个名称引用装饰后的它
+     */
+    public static final String REDIS_SERVICE_BEAN = "redisServiceImpl";
+
+    /**
+     * 将包装 redisServiceImpl 的 BeanPostProcessor 注册到容器中
+     * <p>
+     * BeanPostProcessor 创建得很早，装饰器在包装 redisServiceImpl 时才获取，它们依赖的 MeterRegistry 等 bean 不受影响
+     *
+     * @param decorators 所有 RedisServiceDecorator
+     * @return BeanPostProcessor 对象
+     */
+    @Bean
+    public static BeanPostProcessor redisServiceDecoratorPostProcessor(ObjectProvider<RedisServiceDecorator> decorators) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!REDIS_SERVICE_BEAN.equals(beanName) || !(bean instanceof RedisService)) {
+                    return bean;
+                }
+                RedisService redisService = (RedisService) bean;
+                List<RedisServiceDecorator> ordered = decorators.orderedStream().collect(Collectors.toList());
+                for (RedisServiceDecorator decorator : ordered) {
+                    redisService = decorator.decorate(redisService);
+                }
+                return redisService;
+            }
+        };
+    }
+}
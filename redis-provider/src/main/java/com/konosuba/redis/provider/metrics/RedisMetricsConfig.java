@@ -0,0 +1,42 @@
+package com.konosuba.redis.provider.metrics;
+
+import com.konosuba.redis.provider.service.RedisService;
+import com.konosuba.redis.provider.service.RedisServiceDecorator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * RedisService 耗时统计配置，redis.provider.metrics.enabled=false 时关闭
+ * <p>
+ * 只包装直接访问 redis 的 RedisServiceImpl，统计的是 redis 的真实耗时；
+ * 开启本地缓存时命中的读取不经过它，命中率见 redis.near-cache 的指标
+ *
+ * @author konosuba
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "redis.provider.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RedisMetricsConfig {
+
+    /**
+     * 将耗时统计的装饰器注册到容器中，由 RedisServiceDecoratorConfig 按 METRICS_ORDER 包装
+     *
+     * @param meterRegistry MeterRegistry
+     * @return RedisServiceDecorator 对象
+     */
+    @Bean
+    public RedisServiceDecorator timedRedisServiceDecorator(MeterRegistry meterRegistry) {
+        return new RedisServiceDecorator() {
+            @Override
+            public RedisService decorate(RedisService redisService) {
+                return new TimedRedisService(redisService, meterRegistry);
+            }
+
+            @Override
+            public int getOrder() {
+                return METRICS_ORDER;
+            }
+        };
+    }
+}
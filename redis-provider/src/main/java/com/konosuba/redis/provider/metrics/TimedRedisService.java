@@ -0,0 +1,75 @@
+package com.konosuba.redis.provider.metrics;
+
+import com.konosuba.redis.provider.service.ForwardingRedisService;
+import com.konosuba.redis.provider.service.RedisService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 统计 RedisService 每个方法的耗时，指标 redis.service，按 method 和 exception 区分
+ * <p>
+ * 只覆盖 ForwardingRedisService 的 intercept。返回 Stream 和 Cursor 的方法只统计创建的时间，之后的迭代不计入
+ *
+ * @author konosuba
+ */
+public class TimedRedisService extends ForwardingRedisService {
+    private static final String METRIC_NAME = "redis.service";
+
+    private final RedisService delegate;
+    private final MeterRegistry registry;
+    /**
+     * 主节点视图和默认视图共用计时器
+     */
+    private final Map<String, Timer> timers;
+
+    public TimedRedisService(RedisService delegate, MeterRegistry registry) {
+        this(delegate, registry, new ConcurrentHashMap<>());
+    }
+
+    private TimedRedisService(RedisService delegate, MeterRegistry registry, Map<String, Timer> timers) {
+        this.delegate = delegate;
+        this.registry = registry;
+        this.timers = timers;
+    }
+
+    @Override
+    protected RedisService delegate() {
+        return delegate;
+    }
+
+    @Override
+    protected <T> T intercept(String method, Supplier<T> invocation) {
+        long start = System.nanoTime();
+        try {
+            T result = invocation.get();
+            timer(method, "none").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (RuntimeException | Error e) {
+            timer(method, e.getClass().getSimpleName()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    @Override
+    protected RedisService decorateMaster(RedisService master) {
+        return new TimedRedisService(master, registry, timers);
+    }
+
+    private Timer timer(String method, String exception) {
+        return timers.computeIfAbsent(method + ':' + exception, key -> Timer.builder(METRIC_NAME)
+                .tag("method", method)
+                .tag("exception", exception)
+                .description("RedisService 方法耗时")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(1))
+                .register(registry));
+    }
+}
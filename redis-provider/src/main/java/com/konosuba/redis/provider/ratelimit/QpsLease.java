@@ -0,0 +1,123 @@
+package com.konosuba.redis.provider.ratelimit;
+
+import com.konosuba.redis.provider.service.RedisService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多个实例平分一个全局 QPS
+ * <p>
+ * 每个实例定时在 redis 中续约，拿到当前存活的实例数后把自己的份额设置到本地令牌桶，
+ * 每次请求只访问本地令牌桶，不需要访问 redis。实例加入或退出后，其他实例在一个续约周期内调整份额；
+ * redis 不可用时沿用上一次的份额
+ *
+ * @author konosuba
+ */
+@Slf4j
+public class QpsLease {
+    private static final String SCRIPT = "qps_lease";
+
+    private final RedisService redisService;
+    private final String key;
+    private final String instanceId;
+    private final double globalQps;
+    private final long leaseMillis;
+    private final TokenBucket tokenBucket;
+
+    private ScheduledExecutorService scheduler;
+    private volatile long instances = 1;
+
+    /**
+     * @param redisService redis
+     * @param key          存活实例的有序集合
+     * @param instanceId   当前实例的 id
+     * @param globalQps    所有实例加起来的 QPS
+     * @param leaseMillis  租约时长，每 1/3 租约时长续约一次
+     * @param burst        本地令牌桶允许的突发数量
+     */
+    public QpsLease(RedisService redisService, String key, String instanceId, double globalQps, long leaseMillis, int burst) {
+        this.redisService = redisService;
+        this.key = key;
+        this.instanceId = instanceId;
+        this.globalQps = globalQps;
+        this.leaseMillis = leaseMillis;
+        this.tokenBucket = new TokenBucket(globalQps, burst);
+    }
+
+    /**
+     * 第一次续约并开始定时续约
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        renew();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "qps-lease-" + key);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, leaseMillis / 3);
+        scheduler.scheduleAtFixedRate(this::renew, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止续约并释放租约
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+        try {
+            redisService.zRemove(key, instanceId);
+        } catch (RuntimeException e) {
+            log.warn("释放 QPS 租约失败，key={}，将在租约到期后自动释放", key, e);
+        }
+    }
+
+    /**
+     * 本地令牌桶，请求前从这里获取令牌
+     *
+     * @return TokenBucket 对象
+     */
+    public TokenBucket getTokenBucket() {
+        return tokenBucket;
+    }
+
+    /**
+     * 最近一次续约时的存活实例数
+     *
+     * @return 实例数
+     */
+    public long getInstances() {
+        return instances;
+    }
+
+    /**
+     * 当前实例分到的 QPS
+     *
+     * @return QPS
+     */
+    public double getShare() {
+        return tokenBucket.getRate();
+    }
+
+    private void renew() {
+        try {
+            Long count = redisService.executeScript(SCRIPT, Long.class, Collections.singletonList(key), instanceId, leaseMillis);
+            if (count != null && count > 0 && count != instances) {
+                log.info("QPS 租约实例数变化，key={}，{} -> {}，本实例 QPS {}", key, instances, count, globalQps / count);
+                instances = count;
+            }
+            tokenBucket.setRate(globalQps / instances);
+        } catch (RuntimeException e) {
+            log.warn("QPS 租约续约失败，key={}，沿用当前份额 {}", key, tokenBucket.getRate(), e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.konosuba.redis.provider.ratelimit;
+
+/**
+ * 限流结果
+ *
+ * @author konosuba
+ */
+public class RateLimitResult {
+    private static final RateLimitResult ALLOWED = new RateLimitResult(null, 0, null);
+
+    /**
+     * 已满的窗口，通过时为 null
+     */
+    private final SlidingWindow rejectedBy;
+    /**
+     * 多久之后窗口会有余量（毫秒）
+     */
+    private final long retryAfterMillis;
+    /**
+     * 通过时记在各窗口中的成员，撤销这次计数时用到，没有窗口时为 null
+     */
+    private final Long member;
+
+    private RateLimitResult(SlidingWindow rejectedBy, long retryAfterMillis, Long member) {
+        this.rejectedBy = rejectedBy;
+        this.retryAfterMillis = retryAfterMillis;
+        this.member = member;
+    }
+
+    static RateLimitResult allowed() {
+        return ALLOWED;
+    }
+
+    static RateLimitResult allowed(Long member) {
+        return new RateLimitResult(null, 0, member);
+    }
+
+    static RateLimitResult rejected(SlidingWindow rejectedBy, long retryAfterMillis) {
+        return new RateLimitResult(rejectedBy, Math.max(retryAfterMillis, 0), null);
+    }
+
+    public boolean isAllowed() {
+        return rejectedBy == null;
+    }
+
+    public SlidingWindow getRejectedBy() {
+        return rejectedBy;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    Long getMember() {
+        return member;
+    }
+}
@@ -0,0 +1,33 @@
+package com.konosuba.redis.provider.ratelimit;
+
+/**
+ * 一个滑动窗口：key 在 windowMillis 毫秒内最多通过 limit 次
+ *
+ * @author konosuba
+ */
+public class SlidingWindow {
+    private final String key;
+    private final long limit;
+    private final long windowMillis;
+
+    public SlidingWindow(String key, long limit, long windowMillis) {
+        if (limit <= 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("limit 和 windowMillis 必须大于 0：" + key);
+        }
+        this.key = key;
+        this.limit = limit;
+        this.windowMillis = windowMillis;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+}
@@ -0,0 +1,107 @@
+package com.konosuba.redis.provider.ratelimit;
+
+import com.konosuba.redis.provider.cluster.RedisSlotRouter;
+import com.konosuba.redis.provider.service.RedisService;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 基于有序集合的滑动窗口限流
+ * <p>
+ * 每次请求是有序集合中的一个成员，分数为 redis 服务器时间；多个窗口在一个 lua 脚本中检查，
+ * 全部有余量时才记一次，一次网络往返，不会出现部分窗口被计数的情况。
+ * 集群模式下不同 slot 的窗口分组执行，后面的组被拒绝时撤销前面的组已经记下的成员
+ *
+ * @author konosuba
+ */
+@Component
+public class SlidingWindowRateLimiter {
+    private static final String SCRIPT = "sliding_window";
+
+    @Resource
+    private RedisService redisService;
+    @Resource
+    private RedisSlotRouter redisSlotRouter;
+
+    /**
+     * 尝试通过所有窗口
+     *
+     * @param windows 要检查的窗口
+     * @return 限流结果
+     */
+    public RateLimitResult tryAcquire(List<SlidingWindow> windows) {
+        if (windows.isEmpty()) {
+            return RateLimitResult.allowed();
+        }
+        Long member = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+        Collection<List<SlidingWindow>> groups = group(windows);
+        List<List<SlidingWindow>> acquired = new ArrayList<>(groups.size());
+        for (List<SlidingWindow> group : groups) {
+            RateLimitResult result = execute(group, member);
+            if (!result.isAllowed()) {
+                acquired.forEach(acquiredGroup -> remove(acquiredGroup, member));
+                return result;
+            }
+            acquired.add(group);
+        }
+        return RateLimitResult.allowed(member);
+    }
+
+    /**
+     * 撤销一次通过的计数，例如请求最终没有执行，不应该占用窗口的余量
+     *
+     * @param result  tryAcquire 返回的通过结果，被拒绝的结果没有计数，忽略
+     * @param windows 要撤销的窗口，可以只是 tryAcquire 时的一部分
+     */
+    public void release(RateLimitResult result, Collection<SlidingWindow> windows) {
+        if (result == null || result.getMember() == null) {
+            return;
+        }
+        remove(windows, result.getMember());
+    }
+
+    private void remove(Collection<SlidingWindow> windows, Long member) {
+        for (SlidingWindow window : windows) {
+            redisService.zRemove(window.getKey(), member);
+        }
+    }
+
+    private RateLimitResult execute(List<SlidingWindow> windows, Long member) {
+        List<String> keys = new ArrayList<>(windows.size());
+        Object[] args = new Object[1 + 2 * windows.size()];
+        args[0] = member;
+        for (int i = 0; i < windows.size(); i++) {
+            SlidingWindow window = windows.get(i);
+            keys.add(window.getKey());
+            args[1 + 2 * i] = window.getLimit();
+            args[2 + 2 * i] = window.getWindowMillis();
+        }
+        List<?> result = redisService.executeScript(SCRIPT, List.class, keys, args);
+        int rejected = ((Number) result.get(0)).intValue();
+        if (rejected == 0) {
+            return RateLimitResult.allowed();
+        }
+        return RateLimitResult.rejected(windows.get(rejected - 1), ((Number) result.get(1)).longValue());
+    }
+
+    /**
+     * 集群模式下按 slot 分组，每组一次脚本调用
+     */
+    private Collection<List<SlidingWindow>> group(List<SlidingWindow> windows) {
+        if (!redisSlotRouter.isClustered()) {
+            return Collections.singletonList(windows);
+        }
+        Map<String, SlidingWindow> byKey = new LinkedHashMap<>();
+        windows.forEach(window -> byKey.put(window.getKey(), window));
+        List<List<SlidingWindow>> groups = new ArrayList<>();
+        for (List<String> keys : redisSlotRouter.groupBySlot(byKey.keySet()).values()) {
+            List<SlidingWindow> group = new ArrayList<>(keys.size());
+            keys.forEach(key -> group.add(byKey.get(key)));
+            groups.add(group);
+        }
+        return groups;
+    }
+}
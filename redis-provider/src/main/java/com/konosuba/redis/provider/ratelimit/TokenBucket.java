@@ -0,0 +1,105 @@
+package com.konosuba.redis.provider.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内的令牌桶，GCRA 算法，无锁
+ * <p>
+ * 只保存下一个令牌的理论到达时间，获取令牌就是用 CAS 把它往后推一个发放间隔；
+ * 拿不到令牌时返回需要等待的时间，等待期间令牌已经预留给调用方
+ *
+ * @author konosuba
+ */
+public final class TokenBucket {
+    /**
+     * 下一个令牌的理论到达时间（System.nanoTime）
+     */
+    private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+    /**
+     * 允许的突发数量
+     */
+    private final int burst;
+    /**
+     * 发放间隔（纳秒）
+     */
+    private volatile long intervalNanos;
+
+    /**
+     * @param permitsPerSecond 每秒发放的令牌数
+     * @param burst            允许连续取走的令牌数，1 表示严格按间隔发放
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst 至少为 1");
+        }
+        this.burst = burst;
+        setRate(permitsPerSecond);
+    }
+
+    /**
+     * 修改速率，已经预留的令牌不受影响
+     *
+     * @param permitsPerSecond 每秒发放的令牌数
+     */
+    public void setRate(double permitsPerSecond) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("速率必须大于 0：" + permitsPerSecond);
+        }
+        intervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+    }
+
+    /**
+     * 当前速率
+     *
+     * @return 每秒发放的令牌数
+     */
+    public double getRate() {
+        return (double) TimeUnit.SECONDS.toNanos(1) / intervalNanos;
+    }
+
+    /**
+     * 预留一个令牌
+     *
+     * @param maxWaitNanos 最多愿意等待的时间
+     * @return 需要等待的纳秒数，0 表示可以立即使用；超过 maxWaitNanos 时不预留，返回 -1
+     */
+    public long reserve(long maxWaitNanos) {
+        long interval = intervalNanos;
+        long tolerance = interval * (burst - 1);
+        while (true) {
+            long now = System.nanoTime();
+            long arrival = theoreticalArrival.get();
+            long start = arrival - now > 0 ? arrival : now;
+            long wait = start - now - tolerance;
+            if (wait < 0) {
+                wait = 0;
+            }
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, start + interval)) {
+                return wait;
+            }
+        }
+    }
+
+    /**
+     * 获取一个令牌，需要时阻塞等待
+     *
+     * @param maxWait  最多等待的时间
+     * @param timeUnit 时间单位
+     * @return 拿到令牌返回 true，需要等待的时间超过 maxWait 返回 false
+     * @throws InterruptedException 等待时被中断
+     */
+    public boolean acquire(long maxWait, TimeUnit timeUnit) throws InterruptedException {
+        long wait = reserve(timeUnit.toNanos(maxWait));
+        if (wait < 0) {
+            return false;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+package com.konosuba.redis.provider.script;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * lua 脚本注册表
+ * <p>
+ * 启动时加载 classpath*:redis/scripts/*.lua，文件名（不含 .lua）就是脚本名，并通过 SCRIPT LOAD 预先加载到 redis。
+ * 执行时使用 EVALSHA，redis 重启或者 SCRIPT FLUSH 之后返回 NOSCRIPT 时会自动改用 EVAL 重新加载
+ *
+ * @author konosuba
+ */
+@Slf4j
+@Component
+public class RedisScriptRegistry {
+    private static final String LOCATION = "classpath*:redis/scripts/*.lua";
+
+    @Resource
+    private RedisConnectionFactory redisConnectionFactory;
+
+    /**
+     * 脚本名 -> 脚本内容
+     */
+    private final Map<String, String> sources = new ConcurrentHashMap<>();
+    /**
+     * 脚本名 + 返回值类型 -> RedisScript，RedisScript 会缓存脚本的 SHA1
+     */
+    private final Map<String, RedisScript<?>> scripts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        for (org.springframework.core.io.Resource resource : new PathMatchingResourcePatternResolver().getResources(LOCATION)) {
+            String filename = resource.getFilename();
+            if (filename == null) {
+                continue;
+            }
+            String name = filename.substring(0, filename.length() - ".lua".length());
+            String source;
+            try (InputStream in = resource.getInputStream()) {
+                source = StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+            }
+            if (sources.putIfAbsent(name, source) != null) {
+                throw new IllegalStateException("lua 脚本重名：" + name + "，" + resource);
+            }
+        }
+        preload();
+        log.info("已加载 lua 脚本：{}", sources.keySet());
+    }
+
+    /**
+     * 获取脚本
+     *
+     * @param name       脚本名
+     * @param resultType 返回值类型，Long、Boolean、List 或者值的类型
+     * @param <T>        返回值类型
+     * @return RedisScript 对象
+     */
+    @SuppressWarnings("unchecked")
+    public <T> RedisScript<T> getScript(String name, Class<T> resultType) {
+        return (RedisScript<T>) scripts.computeIfAbsent(name + '#' + resultType.getName(), k -> {
+            String source = sources.get(name);
+            if (source == null) {
+                throw new IllegalArgumentException("lua 脚本不存在：" + name);
+            }
+            return RedisScript.of(source, resultType);
+        });
+    }
+
+    /**
+     * 预先加载脚本，同时检查语法错误；集群模式等不支持 SCRIPT LOAD 的情况下第一次执行时再加载
+     */
+    private void preload() {
+        if (sources.isEmpty()) {
+            return;
+        }
+        try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+            sources.forEach((name, source) -> connection.scriptLoad(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (InvalidDataAccessApiUsageException e) {
+            log.warn("当前 redis 部署不支持 SCRIPT LOAD，将在第一次执行时加载：{}", e.getMessage());
+        }
+    }
+}
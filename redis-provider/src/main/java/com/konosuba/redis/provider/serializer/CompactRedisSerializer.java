@@ -0,0 +1,273 @@
+package com.konosuba.redis.provider.serializer;
+
+import com.alibaba.fastjson.JSON;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 紧凑的 redis 值序列化器
+ * <p>
+ * 字符串和数字按 UTF-8 原样保存，和 redis-cli 看到的一致，INCRBY 之类的命令也能直接使用；
+ * 读取时没有类型标记的值都按字符串返回。
+ * <p>
+ * 其他值以 0xFF 开头（UTF-8 中不会出现这个字节），后面是一个字节的格式版本，再后面是带类型标记的二进制编码，
+ * 支持 null、Boolean、Integer、Long、Double、String、byte[]、List、Set 和 Map，
+ * 其他对象按 FastJson 编码，读回来是 JSONObject，和 FastJsonRedisSerializer 的行为一致
+ *
+ * @author konosuba
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+    private static final byte MAGIC = (byte) 0xFF;
+    private static final byte VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte STRING = 6;
+    private static final byte BYTES = 7;
+    private static final byte LIST = 8;
+    private static final byte SET = 9;
+    private static final byte MAP = 10;
+    private static final byte JSON_VALUE = 11;
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        if (value instanceof String) {
+            return ((String) value).getBytes(StandardCharsets.UTF_8);
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return value.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        Output output = new Output();
+        output.writeByte(MAGIC);
+        output.writeByte(VERSION);
+        write(output, value);
+        return output.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (bytes.length < 2 || bytes[1] != VERSION) {
+            throw new SerializationException("不支持的序列化版本：" + (bytes.length < 2 ? "无" : bytes[1]));
+        }
+        Input input = new Input(bytes, 2);
+        try {
+            return read(input);
+        } catch (IndexOutOfBoundsException e) {
+            throw new SerializationException("数据不完整", e);
+        }
+    }
+
+    private static void write(Output output, Object value) {
+        if (value == null) {
+            output.writeByte(NULL);
+        } else if (value instanceof String) {
+            output.writeByte(STRING);
+            output.writeBytes(((String) value).getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof Boolean) {
+            output.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            output.writeByte(INT);
+            output.writeVarLong(zigZag(((Number) value).intValue()));
+        } else if (value instanceof Long) {
+            output.writeByte(LONG);
+            output.writeVarLong(zigZag((Long) value));
+        } else if (value instanceof Double || value instanceof Float) {
+            output.writeByte(DOUBLE);
+            output.writeLong(Double.doubleToRawLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof byte[]) {
+            output.writeByte(BYTES);
+            output.writeBytes((byte[]) value);
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            output.writeByte(value instanceof Set ? SET : LIST);
+            output.writeVarLong(collection.size());
+            for (Object element : collection) {
+                write(output, element);
+            }
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            output.writeByte(MAP);
+            output.writeVarLong(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                write(output, entry.getKey());
+                write(output, entry.getValue());
+            }
+        } else {
+            output.writeByte(JSON_VALUE);
+            output.writeBytes(JSON.toJSONBytes(value));
+        }
+    }
+
+    private static Object read(Input input) {
+        byte type = input.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case INT:
+                return (int) unZigZag(input.readVarLong());
+            case LONG:
+                return unZigZag(input.readVarLong());
+            case DOUBLE:
+                return Double.longBitsToDouble(input.readLong());
+            case STRING:
+                return new String(input.readBytes(), StandardCharsets.UTF_8);
+            case BYTES:
+                return input.readBytes();
+            case LIST: {
+                int size = input.readSize();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(read(input));
+                }
+                return list;
+            }
+            case SET: {
+                int size = input.readSize();
+                Set<Object> set = new LinkedHashSet<>(size * 4 / 3 + 1);
+                for (int i = 0; i < size; i++) {
+                    set.add(read(input));
+                }
+                return set;
+            }
+            case MAP: {
+                int size = input.readSize();
+                Map<Object, Object> map = new LinkedHashMap<>(size * 4 / 3 + 1);
+                for (int i = 0; i < size; i++) {
+                    Object key = read(input);
+                    map.put(key, read(input));
+                }
+                return map;
+            }
+            case JSON_VALUE:
+                return JSON.parse(input.readBytes());
+            default:
+                throw new SerializationException("未知的类型标记：" + type);
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 可增长的字节缓冲
+     */
+    private static final class Output {
+        private byte[] buffer = new byte[32];
+        private int position;
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+            }
+        }
+    }
+
+    /**
+     * 按顺序读取字节
+     */
+    private static final class Input {
+        private final byte[] buffer;
+        private int position;
+
+        Input(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        byte readByte() {
+            return buffer[position++];
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("varint 过长");
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (buffer[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        int readSize() {
+            long size = readVarLong();
+            if (size < 0 || size > buffer.length - position) {
+                throw new SerializationException("长度超出数据范围：" + size);
+            }
+            return (int) size;
+        }
+
+        byte[] readBytes() {
+            int length = readSize();
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.konosuba.redis.provider.serializer;
+
+import com.alibaba.fastjson.support.spring.FastJsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * redis 值的序列化方式
+ *
+ * @author konosuba
+ */
+public enum RedisValueCodec {
+    /**
+     * FastJson，字符串会带上引号，读取时都要经过 JSON 解析
+     */
+    FASTJSON {
+        @Override
+        public RedisSerializer<Object> serializer() {
+            return new FastJsonRedisSerializer<>(Object.class);
+        }
+    },
+    /**
+     * 字符串和数字原样保存，其他值使用紧凑的二进制格式
+     */
+    COMPACT {
+        @Override
+        public RedisSerializer<Object> serializer() {
+            return new CompactRedisSerializer();
+        }
+    };
+
+    /**
+     * 创建对应的序列化器
+     *
+     * @return RedisSerializer 对象
+     */
+    public abstract RedisSerializer<Object> serializer();
+}
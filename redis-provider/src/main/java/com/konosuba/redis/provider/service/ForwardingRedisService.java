@@ -0,0 +1,695 @@
+package com.konosuba.redis.provider.service;
+
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * 把所有方法转发给另一个 RedisService，装饰器继承它，只覆盖需要改变的方法
+ * <p>
+ * 每次转发都经过 intercept，耗时统计、链路追踪这类对所有方法一视同仁的装饰器只覆盖 intercept；
+ * 本地缓存这类按方法区分的装饰器覆盖具体的方法。主节点视图通过 decorateMaster 套上同样的装饰
+ *
+ * @author konosuba
+ */
+public abstract class ForwardingRedisService implements RedisService {
+    private volatile RedisService masterView;
+
+    /**
+     * 被装饰的 RedisService
+     *
+     * @return RedisService 对象
+     */
+    protected abstract RedisService delegate();
+
+    /**
+     * 转发一次有返回值的调用，默认直接执行
+     *
+     * @param method     RedisService 的方法名
+     * @param invocation 调用 delegate() 的对应方法
+     * @param <T>        返回值类型
+     * @return 方法的返回值
+     */
+    protected <T> T intercept(String method, Supplier<T> invocation) {
+        return invocation.get();
+    }
+
+    /**
+     * 转发一次没有返回值的调用，交给有返回值的 intercept，子类只需要覆盖那一个
+     *
+     * @param method     RedisService 的方法名
+     * @param invocation 调用 delegate() 的对应方法
+     */
+    protected void intercept(String method, Runnable invocation) {
+        intercept(method, () -> {
+            invocation.run();
+            return null;
+        });
+    }
+
+    /**
+     * 默认就读主节点时返回自己，否则返回 decorateMaster 装饰过的主节点视图
+     */
+    @Override
+    public RedisService master() {
+        RedisService delegate = delegate();
+        RedisService master = delegate.master();
+        if (master == delegate) {
+            return this;
+        }
+        RedisService view = masterView;
+        if (view == null) {
+            view = decorateMaster(master);
+            masterView = view;
+        }
+        return view;
+    }
+
+    /**
+     * 为主节点视图创建同样的装饰器，默认不装饰
+     *
+     * @param master delegate() 的主节点视图
+     * @return 装饰后的主节点视图
+     */
+    protected RedisService decorateMaster(RedisService master) {
+        return master;
+    }
+
+    @Override
+    public Boolean delete(String key) {
+        return intercept("delete", () -> delegate().delete(key));
+    }
+
+    @Override
+    public Long delete(Collection<String> keys) {
+        return intercept("delete", () -> delegate().delete(keys));
+    }
+
+    @Override
+    public byte[] dump(String key) {
+        return intercept("dump", () -> delegate().dump(key));
+    }
+
+    @Override
+    public Boolean hasKey(String key) {
+        return intercept("hasKey", () -> delegate().hasKey(key));
+    }
+
+    @Override
+    public Boolean expire(String key, long timeout, TimeUnit timeUnit) {
+        return intercept("expire", () -> delegate().expire(key, timeout, timeUnit));
+    }
+
+    @Override
+    public Boolean expireAt(String key, Date date) {
+        return intercept("expireAt", () -> delegate().expireAt(key, date));
+    }
+
+    @Deprecated
+    @Override
+    public Set<String> keys(String pattern) {
+        return intercept("keys", () -> delegate().keys(pattern));
+    }
+
+    @Override
+    public Stream<String> scan(String pattern, long count) {
+        return intercept("scan", () -> delegate().scan(pattern, count));
+    }
+
+    @Override
+    public long scan(String pattern, long count, int batchSize, Consumer<List<String>> consumer) {
+        return intercept("scan", () -> delegate().scan(pattern, count, batchSize, consumer));
+    }
+
+    @Override
+    public List<Object> pipeline(Consumer<RedisPipeline> commands) {
+        return intercept("pipeline", () -> delegate().pipeline(commands));
+    }
+
+    @Override
+    public <T> T executeScript(String name, Class<T> resultType, List<String> keys, Object... args) {
+        return intercept("executeScript", () -> delegate().executeScript(name, resultType, keys, args));
+    }
+
+    @Override
+    public Boolean move(String key, int dbIndex) {
+        return intercept("move", () -> delegate().move(key, dbIndex));
+    }
+
+    @Override
+    public Boolean persist(String key) {
+        return intercept("persist", () -> delegate().persist(key));
+    }
+
+    @Override
+    public Long getExpire(String key, TimeUnit timeUnit) {
+        return intercept("getExpire", () -> delegate().getExpire(key, timeUnit));
+    }
+
+    @Override
+    public Long getExpire(String key) {
+        return intercept("getExpire", () -> delegate().getExpire(key));
+    }
+
+    @Override
+    public String randomKey() {
+        return intercept("randomKey", () -> delegate().randomKey());
+    }
+
+    @Override
+    public void rename(String oldKey, String newKey) {
+        intercept("rename", () -> delegate().rename(oldKey, newKey));
+    }
+
+    @Override
+    public Boolean renameIfAbsent(String oldKey, String newKey) {
+        return intercept("renameIfAbsent", () -> delegate().renameIfAbsent(oldKey, newKey));
+    }
+
+    @Override
+    public DataType type(String key) {
+        return intercept("type", () -> delegate().type(key));
+    }
+
+    @Override
+    public void set(String key, Object value) {
+        intercept("set", () -> delegate().set(key, value));
+    }
+
+    @Override
+    public Object get(String key) {
+        return intercept("get", () -> delegate().get(key));
+    }
+
+    @Override
+    public Object get(String key, long start, long end) {
+        return intercept("get", () -> delegate().get(key, start, end));
+    }
+
+    @Override
+    public Object getAndSet(String key, String value) {
+        return intercept("getAndSet", () -> delegate().getAndSet(key, value));
+    }
+
+    @Override
+    public Boolean getBit(String key, long offset) {
+        return intercept("getBit", () -> delegate().getBit(key, offset));
+    }
+
+    @Override
+    public List<Object> multiGet(Collection<String> keys) {
+        return intercept("multiGet", () -> delegate().multiGet(keys));
+    }
+
+    @Override
+    public Boolean setBit(String key, long offset, boolean value) {
+        return intercept("setBit", () -> delegate().setBit(key, offset, value));
+    }
+
+    @Override
+    public void set(String key, String value, long timeout, TimeUnit timeUnit) {
+        intercept("set", () -> delegate().set(key, value, timeout, timeUnit));
+    }
+
+    @Override
+    public Boolean setIfAbsent(String key, String value) {
+        return intercept("setIfAbsent", () -> delegate().setIfAbsent(key, value));
+    }
+
+    @Override
+    public Boolean setIfAbsent(String key, String value, long timeout, TimeUnit timeUnit) {
+        return intercept("setIfAbsent", () -> delegate().setIfAbsent(key, value, timeout, timeUnit));
+    }
+
+    @Override
+    public void set(String key, String value, long offset) {
+        intercept("set", () -> delegate().set(key, value, offset));
+    }
+
+    @Override
+    public Long size(String key) {
+        return intercept("size", () -> delegate().size(key));
+    }
+
+    @Override
+    public void multiSet(Map<String, String> maps) {
+        intercept("multiSet", () -> delegate().multiSet(maps));
+    }
+
+    @Override
+    public Boolean multiSetIfAbsent(Map<String, String> maps) {
+        return intercept("multiSetIfAbsent", () -> delegate().multiSetIfAbsent(maps));
+    }
+
+    @Override
+    public Long incrBy(String key, long increment) {
+        return intercept("incrBy", () -> delegate().incrBy(key, increment));
+    }
+
+    @Override
+    public Double incrByDouble(String key, double increment) {
+        return intercept("incrByDouble", () -> delegate().incrByDouble(key, increment));
+    }
+
+    @Override
+    public Integer append(String key, String value) {
+        return intercept("append", () -> delegate().append(key, value));
+    }
+
+    @Override
+    public Object hGet(String key, String field) {
+        return intercept("hGet", () -> delegate().hGet(key, field));
+    }
+
+    @Override
+    public Map<String, Object> hGetAll(String key) {
+        return intercept("hGetAll", () -> delegate().hGetAll(key));
+    }
+
+    @Override
+    public List<Object> hMultiGet(String key, List<String> fields) {
+        return intercept("hMultiGet", () -> delegate().hMultiGet(key, fields));
+    }
+
+    @Override
+    public void hPut(String key, String hashKey, Object value) {
+        intercept("hPut", () -> delegate().hPut(key, hashKey, value));
+    }
+
+    @Override
+    public void hPutAll(String key, Map<String, String> maps) {
+        intercept("hPutAll", () -> delegate().hPutAll(key, maps));
+    }
+
+    @Override
+    public Boolean hPutIfAbsent(String key, String hashKey, Object value) {
+        return intercept("hPutIfAbsent", () -> delegate().hPutIfAbsent(key, hashKey, value));
+    }
+
+    @Override
+    public Long hDelete(String key, Object... fields) {
+        return intercept("hDelete", () -> delegate().hDelete(key, fields));
+    }
+
+    @Override
+    public boolean hHasKey(String key, String field) {
+        return intercept("hHasKey", () -> delegate().hHasKey(key, field));
+    }
+
+    @Override
+    public Long hIncrBy(String key, String field, long increment) {
+        return intercept("hIncrBy", () -> delegate().hIncrBy(key, field, increment));
+    }
+
+    @Override
+    public Double hIncrByDouble(String key, String field, Double increment) {
+        return intercept("hIncrByDouble", () -> delegate().hIncrByDouble(key, field, increment));
+    }
+
+    @Override
+    public Set<String> hKeys(String key) {
+        return intercept("hKeys", () -> delegate().hKeys(key));
+    }
+
+    @Override
+    public Long hSize(String key) {
+        return intercept("hSize", () -> delegate().hSize(key));
+    }
+
+    @Override
+    public List<Object> hValues(String key) {
+        return intercept("hValues", () -> delegate().hValues(key));
+    }
+
+    @Override
+    public Cursor<Map.Entry<String, Object>> hScan(String key, ScanOptions options) {
+        return intercept("hScan", () -> delegate().hScan(key, options));
+    }
+
+    @Override
+    public Object lIndex(String key, long index) {
+        return intercept("lIndex", () -> delegate().lIndex(key, index));
+    }
+
+    @Override
+    public List<Object> lRange(String key, long start, long end) {
+        return intercept("lRange", () -> delegate().lRange(key, start, end));
+    }
+
+    @Override
+    public Long lLeftPush(String key, Object value) {
+        return intercept("lLeftPush", () -> delegate().lLeftPush(key, value));
+    }
+
+    @Override
+    public Long lLeftPushAll(String key, Object... value) {
+        return intercept("lLeftPushAll", () -> delegate().lLeftPushAll(key, value));
+    }
+
+    @Override
+    public Long lLeftPushAll(String key, Collection<Object> value) {
+        return intercept("lLeftPushAll", () -> delegate().lLeftPushAll(key, value));
+    }
+
+    @Override
+    public Long lLeftPushIfPresent(String key, Object value) {
+        return intercept("lLeftPushIfPresent", () -> delegate().lLeftPushIfPresent(key, value));
+    }
+
+    @Override
+    public Long lLeftPush(String key, Object pivot, Object value) {
+        return intercept("lLeftPush", () -> delegate().lLeftPush(key, pivot, value));
+    }
+
+    @Override
+    public Long lRightPush(String key, Object value) {
+        return intercept("lRightPush", () -> delegate().lRightPush(key, value));
+    }
+
+    @Override
+    public Long lRightPushAll(String key, Object... value) {
+        return intercept("lRightPushAll", () -> delegate().lRightPushAll(key, value));
+    }
+
+    @Override
+    public Long lRightPushAll(String key, Collection<Object> value) {
+        return intercept("lRightPushAll", () -> delegate().lRightPushAll(key, value));
+    }
+
+    @Override
+    public Long lRightPushIfPresent(String key, Object value) {
+        return intercept("lRightPushIfPresent", () -> delegate().lRightPushIfPresent(key, value));
+    }
+
+    @Override
+    public Long lRightPush(String key, Object pivot, Object value) {
+        return intercept("lRightPush", () -> delegate().lRightPush(key, pivot, value));
+    }
+
+    @Override
+    public void lSet(String key, long index, String value) {
+        intercept("lSet", () -> delegate().lSet(key, index, value));
+    }
+
+    @Override
+    public Object lLeftPop(String key) {
+        return intercept("lLeftPop", () -> delegate().lLeftPop(key));
+    }
+
+    @Override
+    public Object lLeftPop(String key, long timeout, TimeUnit timeUnit) {
+        return intercept("lLeftPop", () -> delegate().lLeftPop(key, timeout, timeUnit));
+    }
+
+    @Override
+    public Object lRightPop(String key) {
+        return intercept("lRightPop", () -> delegate().lRightPop(key));
+    }
+
+    @Override
+    public Object lRightPop(String key, long timeout, TimeUnit timeUnit) {
+        return intercept("lRightPop", () -> delegate().lRightPop(key, timeout, timeUnit));
+    }
+
+    @Override
+    public Object lRightPopAndLeftPush(String sourceKey, String destinationKey) {
+        return intercept("lRightPopAndLeftPush", () -> delegate().lRightPopAndLeftPush(sourceKey, destinationKey));
+    }
+
+    @Override
+    public Object lRightPopAndLeftPush(String sourceKey, String destinationKey, long timeout, TimeUnit timeUnit) {
+        return intercept("lRightPopAndLeftPush", () -> delegate().lRightPopAndLeftPush(sourceKey, destinationKey, timeout, timeUnit));
+    }
+
+    @Override
+    public Long lRemove(String key, long index, String value) {
+        return intercept("lRemove", () -> delegate().lRemove(key, index, value));
+    }
+
+    @Override
+    public void lTrim(String key, long start, long end) {
+        intercept("lTrim", () -> delegate().lTrim(key, start, end));
+    }
+
+    @Override
+    public Long lSize(String key) {
+        return intercept("lSize", () -> delegate().lSize(key));
+    }
+
+    @Override
+    public Long sAdd(String key, Object... values) {
+        return intercept("sAdd", () -> delegate().sAdd(key, values));
+    }
+
+    @Override
+    public Long sRemove(String key, Object... values) {
+        return intercept("sRemove", () -> delegate().sRemove(key, values));
+    }
+
+    @Override
+    public Object sPop(String key) {
+        return intercept("sPop", () -> delegate().sPop(key));
+    }
+
+    @Override
+    public Boolean sMove(String key, String value, String destKey) {
+        return intercept("sMove", () -> delegate().sMove(key, value, destKey));
+    }
+
+    @Override
+    public Long sSize(String key) {
+        return intercept("sSize", () -> delegate().sSize(key));
+    }
+
+    @Override
+    public Boolean sIsMember(String key, Object value) {
+        return intercept("sIsMember", () -> delegate().sIsMember(key, value));
+    }
+
+    @Override
+    public Set<Object> sIntersect(String key, String otherKey) {
+        return intercept("sIntersect", () -> delegate().sIntersect(key, otherKey));
+    }
+
+    @Override
+    public Set<Object> sIntersect(String key, Collection<String> otherKeys) {
+        return intercept("sIntersect", () -> delegate().sIntersect(key, otherKeys));
+    }
+
+    @Override
+    public Long sIntersectAndStore(String key, String otherKey, String destKey) {
+        return intercept("sIntersectAndStore", () -> delegate().sIntersectAndStore(key, otherKey, destKey));
+    }
+
+    @Override
+    public Long sIntersectAndStore(String key, Collection<String> otherKeys, String destKey) {
+        return intercept("sIntersectAndStore", () -> delegate().sIntersectAndStore(key, otherKeys, destKey));
+    }
+
+    @Override
+    public Set<Object> sUnion(String key, String otherKeys) {
+        return intercept("sUnion", () -> delegate().sUnion(key, otherKeys));
+    }
+
+    @Override
+    public Set<Object> sUnion(String key, Collection<String> otherKeys) {
+        return intercept("sUnion", () -> delegate().sUnion(key, otherKeys));
+    }
+
+    @Override
+    public Long sUnionAndStore(String key, String otherKey, String destKey) {
+        return intercept("sUnionAndStore", () -> delegate().sUnionAndStore(key, otherKey, destKey));
+    }
+
+    @Override
+    public Long sUnionAndStore(String key, Collection<String> otherKeys, String destKey) {
+        return intercept("sUnionAndStore", () -> delegate().sUnionAndStore(key, otherKeys, destKey));
+    }
+
+    @Override
+    public Set<Object> sDifference(String key, String otherKey) {
+        return intercept("sDifference", () -> delegate().sDifference(key, otherKey));
+    }
+
+    @Override
+    public Set<Object> sDifference(String key, Collection<String> otherKeys) {
+        return intercept("sDifference", () -> delegate().sDifference(key, otherKeys));
+    }
+
+    @Override
+    public Long sDifference(String key, String otherKey, String destKey) {
+        return intercept("sDifference", () -> delegate().sDifference(key, otherKey, destKey));
+    }
+
+    @Override
+    public Long sDifference(String key, Collection<String> otherKeys, String destKey) {
+        return intercept("sDifference", () -> delegate().sDifference(key, otherKeys, destKey));
+    }
+
+    @Override
+    public Set<Object> sMembers(String key) {
+        return intercept("sMembers", () -> delegate().sMembers(key));
+    }
+
+    @Override
+    public Object sRandomMember(String key) {
+        return intercept("sRandomMember", () -> delegate().sRandomMember(key));
+    }
+
+    @Override
+    public List<Object> sRandomMembers(String key, long count) {
+        return intercept("sRandomMembers", () -> delegate().sRandomMembers(key, count));
+    }
+
+    @Override
+    public Set<Object> sDistinctRandomMembers(String key, long count) {
+        return intercept("sDistinctRandomMembers", () -> delegate().sDistinctRandomMembers(key, count));
+    }
+
+    @Override
+    public Cursor<Object> sScan(String key, ScanOptions options) {
+        return intercept("sScan", () -> delegate().sScan(key, options));
+    }
+
+    @Override
+    public Boolean zAdd(String key, Object value, double score) {
+        return intercept("zAdd", () -> delegate().zAdd(key, value, score));
+    }
+
+    @Override
+    public Long zAdd(String key, Set<ZSetOperations.TypedTuple<Object>> values) {
+        return intercept("zAdd", () -> delegate().zAdd(key, values));
+    }
+
+    @Override
+    public Long zRemove(String key, Object... values) {
+        return intercept("zRemove", () -> delegate().zRemove(key, values));
+    }
+
+    @Override
+    public Double zIncrementScore(String key, Object value, double delta) {
+        return intercept("zIncrementScore", () -> delegate().zIncrementScore(key, value, delta));
+    }
+
+    @Override
+    public Long zRank(String key, Object value) {
+        return intercept("zRank", () -> delegate().zRank(key, value));
+    }
+
+    @Override
+    public Long zReverseRank(String key, Object value) {
+        return intercept("zReverseRank", () -> delegate().zReverseRank(key, value));
+    }
+
+    @Override
+    public Set<Object> zRange(String key, long start, long end) {
+        return intercept("zRange", () -> delegate().zRange(key, start, end));
+    }
+
+    @Override
+    public Set<ZSetOperations.TypedTuple<Object>> zRangeWithScores(String key, long start, long end) {
+        return intercept("zRangeWithScores", () -> delegate().zRangeWithScores(key, start, end));
+    }
+
+    @Override
+    public Set<Object> zRangeByScore(String key, double min, double max) {
+        return intercept("zRangeByScore", () -> delegate().zRangeByScore(key, min, max));
+    }
+
+    @Override
+    public Set<ZSetOperations.TypedTuple<Object>> zRangeByScoreWithScores(String key, double min, double max) {
+        return intercept("zRangeByScoreWithScores", () -> delegate().zRangeByScoreWithScores(key, min, max));
+    }
+
+    @Override
+    public Set<ZSetOperations.TypedTuple<Object>> zRangeByScoreWithScores(String key, double min, double max, long start, long end) {
+        return intercept("zRangeByScoreWithScores", () -> delegate().zRangeByScoreWithScores(key, min, max, start, end));
+    }
+
+    @Override
+    public Set<Object> zReverseRange(String key, long start, long end) {
+        return intercept("zReverseRange", () -> delegate().zReverseRange(key, start, end));
+    }
+
+    @Override
+    public Set<ZSetOperations.TypedTuple<Object>> zReverseRangeWithScores(String key, long start, long end) {
+        return intercept("zReverseRangeWithScores", () -> delegate().zReverseRangeWithScores(key, start, end));
+    }
+
+    @Override
+    public Set<Object> zReverseRangeByScore(String key, double min, double max) {
+        return intercept("zReverseRangeByScore", () -> delegate().zReverseRangeByScore(key, min, max));
+    }
+
+    @Override
+    public Set<ZSetOperations.TypedTuple<Object>> zReverseRangeByScoreWithScores(String key, double min, double max) {
+        return intercept("zReverseRangeByScoreWithScores", () -> delegate().zReverseRangeByScoreWithScores(key, min, max));
+    }
+
+    @Override
+    public Set<Object> zReverseRangeByScore(String key, double min, double max, long start, long end) {
+        return intercept("zReverseRangeByScore", () -> delegate().zReverseRangeByScore(key, min, max, start, end));
+    }
+
+    @Override
+    public Long zCount(String key, double min, double max) {
+        return intercept("zCount", () -> delegate().zCount(key, min, max));
+    }
+
+    @Override
+    public Long zSize(String key) {
+        return intercept("zSize", () -> delegate().zSize(key));
+    }
+
+    @Override
+    public Long zCard(String key) {
+        return intercept("zCard", () -> delegate().zCard(key));
+    }
+
+    @Override
+    public Double zScore(String key, Object value) {
+        return intercept("zScore", () -> delegate().zScore(key, value));
+    }
+
+    @Override
+    public Long zRemoveRange(String key, long start, long end) {
+        return intercept("zRemoveRange", () -> delegate().zRemoveRange(key, start, end));
+    }
+
+    @Override
+    public Long zRemoveRangeByScore(String key, double min, double max) {
+        return intercept("zRemoveRangeByScore", () -> delegate().zRemoveRangeByScore(key, min, max));
+    }
+
+    @Override
+    public Long zUnionAndStore(String key, String otherKey, String destKey) {
+        return intercept("zUnionAndStore", () -> delegate().zUnionAndStore(key, otherKey, destKey));
+    }
+
+    @Override
+    public Long zUnionAndStore(String key, Collection<String> otherKeys, String destKey) {
+        return intercept("zUnionAndStore", () -> delegate().zUnionAndStore(key, otherKeys, destKey));
+    }
+
+    @Override
+    public Long zIntersectAndStore(String key, String otherKey, String destKey) {
+        return intercept("zIntersectAndStore", () -> delegate().zIntersectAndStore(key, otherKey, destKey));
+    }
+
+    @Override
+    public Long zIntersectAndStore(String key, Collection<String> otherKeys, String destKey) {
+        return intercept("zIntersectAndStore", () -> delegate().zIntersectAndStore(key, otherKeys, destKey));
+    }
+
+    @Override
+    public Cursor<ZSetOperations.TypedTuple<Object>> zScan(String key, ScanOptions options) {
+        return intercept("zScan", () -> delegate().zScan(key, options));
+    }
+}
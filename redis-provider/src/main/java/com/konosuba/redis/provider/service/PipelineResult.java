@@ -0,0 +1,35 @@
+package com.konosuba.redis.provider.service;
+
+/**
+ * 管道中一条命令的结果，管道执行后才能取值
+ *
+ * @param <T> 结果类型
+ * @author konosuba
+ */
+public class PipelineResult<T> {
+    private T value;
+    private boolean done;
+
+    /**
+     * 取结果
+     *
+     * @return 命令的返回值
+     */
+    public T get() {
+        if (!done) {
+            throw new IllegalStateException("管道还没有执行");
+        }
+        return value;
+    }
+
+    /**
+     * 管道执行后回填结果
+     *
+     * @param value 命令的返回值
+     */
+    @SuppressWarnings("unchecked")
+    public void complete(Object value) {
+        this.value = (T) value;
+        this.done = true;
+    }
+}
@@ -0,0 +1,108 @@
+package com.konosuba.redis.provider.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * redis 管道，先把命令排队，最后在一次网络往返中一起发出
+ * <p>
+ * 每个方法返回一个 PipelineResult，管道执行后可以从中取到该命令的结果
+ *
+ * @author konosuba
+ */
+public interface RedisPipeline {
+
+    /**
+     * 获取指定 key 的值
+     *
+     * @param key key
+     * @return 值
+     */
+    PipelineResult<Object> get(String key);
+
+    /**
+     * 将值 value 关联到 key ，并将 key 的过期时间设为 timeout
+     *
+     * @param key      key
+     * @param value    值
+     * @param timeout  过期时间
+     * @param timeUnit 时间单位
+     * @return 成功返回 true
+     */
+    PipelineResult<Boolean> set(String key, Object value, long timeout, TimeUnit timeUnit);
+
+    /**
+     * 只有在 key 不存在时设置 key 的值，并同时设置过期时间
+     *
+     * @param key      key
+     * @param value    值
+     * @param timeout  过期时间
+     * @param timeUnit 时间单位
+     * @return 之前已经存在返回false, 不存在返回true
+     */
+    PipelineResult<Boolean> setIfAbsent(String key, Object value, long timeout, TimeUnit timeUnit);
+
+    /**
+     * 删除 key
+     *
+     * @param key 要删除的 key
+     * @return 删除的 key 的数量
+     */
+    PipelineResult<Long> delete(String key);
+
+    /**
+     * 设置过期时间
+     *
+     * @param key      设置过期时间的 key
+     * @param timeout  过期时间
+     * @param timeUnit 时间单位
+     * @return 成功返回 true
+     */
+    PipelineResult<Boolean> expire(String key, long timeout, TimeUnit timeUnit);
+
+    /**
+     * 返回 key 的剩余的过期时间
+     *
+     * @param key      key
+     * @param timeUnit 时间单位
+     * @return 剩余过期时间，没有过期时间返回 -1，key 不存在返回 -2
+     */
+    PipelineResult<Long> getExpire(String key, TimeUnit timeUnit);
+
+    /**
+     * 增加(自增长), 负数则为自减
+     *
+     * @param key       key
+     * @param increment 增加的值
+     * @return 增加后的值
+     */
+    PipelineResult<Long> incrBy(String key, long increment);
+
+    /**
+     * 获取存储在哈希表中指定字段的值
+     *
+     * @param key   key
+     * @param field 字段
+     * @return 值
+     */
+    PipelineResult<Object> hGet(String key, String field);
+
+    /**
+     * 向哈希表中添加字段
+     *
+     * @param key     key
+     * @param hashKey 字段
+     * @param value   值
+     * @return 新增字段返回 true，覆盖已有字段返回 false
+     */
+    PipelineResult<Boolean> hPut(String key, String hashKey, Object value);
+
+    /**
+     * 添加元素,有序集合是按照元素的 score 值由小到大排列
+     *
+     * @param key   key
+     * @param value 元素
+     * @param score 分数
+     * @return 新增元素返回 true
+     */
+    PipelineResult<Boolean> zAdd(String key, Object value, double score);
+}
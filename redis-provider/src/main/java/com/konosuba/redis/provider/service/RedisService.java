@@ -7,6 +7,8 @@ import org.springframework.data.redis.core.ZSetOperations;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * 说明：操作 redis 的工具类
@@ -14,6 +16,17 @@ import java.util.concurrent.TimeUnit;
  * @author konosuba
  */
 public interface RedisService {
+
+    /**
+     * 读主节点的 RedisService
+     * <p>
+     * 配置了 redis.provider.read-from 读从节点时，刚写入就要读取的场景用它读主节点，避免复制延迟读到旧值；
+     * 返回的对象直接访问 redis，不经过本地缓存等装饰器
+     *
+     * @return RedisService 对象
+     */
+    RedisService master();
+
     // key 的操作
 
     /**
@@ -72,9 +85,64 @@ public interface RedisService {
      *
      * @param pattern 条件
      * @return Set<String>
+     * @deprecated KEYS 会遍历整个库并阻塞 redis，使用 {@link #scan(String, long)}
      */
+    @Deprecated
     Set<String> keys(String pattern);
 
+    /**
+     * 用 SCAN 游标增量查找匹配的 key，不会像 KEYS 一样阻塞 redis
+     * <p>
+     * 返回的 Stream 是惰性的，边遍历边向 redis 取下一批，用完需要关闭以释放连接
+     *
+     * @param pattern 条件
+     * @param count   每次 SCAN 的 COUNT
+     * @return 匹配的 key，可能有重复
+     */
+    Stream<String> scan(String pattern, long count);
+
+    /**
+     * 用 SCAN 游标增量查找匹配的 key，攒够 batchSize 个交给 consumer 处理
+     *
+     * @param pattern   条件
+     * @param count     每次 SCAN 的 COUNT
+     * @param batchSize 每批 key 的数量
+     * @param consumer  处理一批 key
+     * @return 遍历到的 key 的数量
+     */
+    long scan(String pattern, long count, int batchSize, Consumer<List<String>> consumer);
+
+    /**
+     * 用管道批量执行命令，所有命令在一次网络往返中发出
+     * <p>
+     * 例如：
+     * <pre>
+     * List&lt;Object&gt; results = redisService.pipeline(pipeline -&gt; {
+     *     pipeline.set("a", "1", 60, TimeUnit.SECONDS);
+     *     pipeline.incrBy("b", 1);
+     * });
+     * </pre>
+     *
+     * @param commands 往管道里添加命令
+     * @return 按命令顺序排列的结果，也可以从各命令返回的 PipelineResult 中取
+     */
+    List<Object> pipeline(Consumer<RedisPipeline> commands);
+
+    /**
+     * 执行 classpath*:redis/scripts 下的 lua 脚本，多个步骤在 redis 中原子地完成
+     * <p>
+     * ARGV 使用值的序列化器编码，和 set 写入的值一致，脚本中可以直接比较；
+     * 返回值类型为 Long、Boolean、List 时直接转换，其他类型使用值的序列化器解码
+     *
+     * @param name       脚本名，即不含 .lua 的文件名
+     * @param resultType 返回值类型
+     * @param keys       脚本中的 KEYS
+     * @param args       脚本中的 ARGV
+     * @param <T>        返回值类型
+     * @return 脚本的返回值
+     */
+    <T> T executeScript(String name, Class<T> resultType, List<String> keys, Object... args);
+
     /**
      * 将当前数据库的 key 移动到给定的数据库 db 当中
      *
@@ -225,6 +293,19 @@ public interface RedisService {
      */
     Boolean setIfAbsent(String key, String value);
 
+    /**
+     * 只有在 key 不存在时设置 key 的值，并同时设置过期时间（SET key value NX EX）
+     * <p>
+     * 判断与写入是一次原子操作，可以用来抢占一段时间内的独占名额
+     *
+     * @param key      key
+     * @param value    值
+     * @param timeout  过期时间
+     * @param timeUnit 时间单位
+     * @return 之前已经存在返回false, 不存在返回true
+     */
+    Boolean setIfAbsent(String key, String value, long timeout, TimeUnit timeUnit);
+
     /**
      * 用 value 参数覆写给定 key 所储存的字符串值，从偏移量 offset 开始
      *
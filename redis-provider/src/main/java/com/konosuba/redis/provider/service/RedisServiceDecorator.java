@@ -0,0 +1,30 @@
+package com.konosuba.redis.provider.service;
+
+import org.springframework.core.Ordered;
+
+/**
+ * 装饰直接访问 redis 的 RedisServiceImpl，注册为 bean 后由 RedisServiceDecoratorConfig 统一套上
+ * <p>
+ * 按 getOrder 从小到大依次包装，order 越小越靠近 redis。本地缓存不在这里，它是 @Primary 的 bean，
+ * 总在所有装饰器的最外层，命中缓存的读取不经过这些装饰器
+ *
+ * @author konosuba
+ */
+public interface RedisServiceDecorator extends Ordered {
+    /**
+     * 耗时统计，紧挨着 RedisServiceImpl，统计的是访问 redis 的真实耗时
+     */
+    int METRICS_ORDER = 100;
+    /**
+     * 链路追踪，在耗时统计外面
+     */
+    int TRACING_ORDER = 200;
+
+    /**
+     * 包装一层
+     *
+     * @param redisService 里面一层的 RedisService
+     * @return 装饰后的 RedisService，一般继承 ForwardingRedisService
+     */
+    RedisService decorate(RedisService redisService);
+}
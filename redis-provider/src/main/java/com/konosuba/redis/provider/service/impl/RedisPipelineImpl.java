@@ -0,0 +1,144 @@
+package com.konosuba.redis.provider.service.impl;
+
+import com.konosuba.redis.provider.service.PipelineResult;
+import com.konosuba.redis.provider.service.RedisPipeline;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * redis 管道的实现，命令先记录下来，execute 时在一次 executePipelined 中按顺序发出
+ * <p>
+ * executePipelined 默认用值的序列化器解码所有 byte[] 结果，hash 的值使用另一种序列化方式时会解错，
+ * 这里让它返回原始的 byte[]，再按每条命令自己的序列化器解码
+ *
+ * @author konosuba
+ */
+class RedisPipelineImpl implements RedisPipeline {
+    private final List<Consumer<RedisOperations<String, Object>>> commands = new ArrayList<>();
+    private final List<PipelineResult<?>> results = new ArrayList<>();
+    private final List<Decoder> decoders = new ArrayList<>();
+
+    @Override
+    public PipelineResult<Object> get(String key) {
+        return add(operations -> operations.opsForValue().get(key), Decoder.VALUE);
+    }
+
+    @Override
+    public PipelineResult<Boolean> set(String key, Object value, long timeout, TimeUnit timeUnit) {
+        return add(operations -> operations.opsForValue().set(key, value, timeout, timeUnit), Decoder.NONE);
+    }
+
+    @Override
+    public PipelineResult<Boolean> setIfAbsent(String key, Object value, long timeout, TimeUnit timeUnit) {
+        return add(operations -> operations.opsForValue().setIfAbsent(key, value, timeout, timeUnit), Decoder.NONE);
+    }
+
+    @Override
+    public PipelineResult<Long> delete(String key) {
+        return add(operations -> operations.delete(key), Decoder.NONE);
+    }
+
+    @Override
+    public PipelineResult<Boolean> expire(String key, long timeout, TimeUnit timeUnit) {
+        return add(operations -> operations.expire(key, timeout, timeUnit), Decoder.NONE);
+    }
+
+    @Override
+    public PipelineResult<Long> getExpire(String key, TimeUnit timeUnit) {
+        return add(operations -> operations.getExpire(key, timeUnit), Decoder.NONE);
+    }
+
+    @Override
+    public PipelineResult<Long> incrBy(String key, long increment) {
+        return add(operations -> operations.opsForValue().increment(key, increment), Decoder.NONE);
+    }
+
+    @Override
+    public PipelineResult<Object> hGet(String key, String field) {
+        return add(operations -> operations.opsForHash().get(key, field), Decoder.HASH_VALUE);
+    }
+
+    @Override
+    public PipelineResult<Boolean> hPut(String key, String hashKey, Object value) {
+        return add(operations -> operations.opsForHash().put(key, hashKey, value), Decoder.NONE);
+    }
+
+    @Override
+    public PipelineResult<Boolean> zAdd(String key, Object value, double score) {
+        return add(operations -> operations.opsForZSet().add(key, value, score), Decoder.NONE);
+    }
+
+    /**
+     * 在一次网络往返中执行排队的命令，并回填每条命令的结果
+     *
+     * @param redisTemplate RedisTemplate 对象
+     * @return 按命令顺序排列的结果
+     */
+    List<Object> execute(RedisTemplate<String, Object> redisTemplate) {
+        if (commands.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Object> rawValues = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, Object> stringOperations = (RedisOperations<String, Object>) operations;
+                commands.forEach(command -> command.accept(stringOperations));
+                return null;
+            }
+        }, null);
+        if (rawValues.size() != results.size()) {
+            throw new IllegalStateException("管道返回 " + rawValues.size() + " 个结果，排队的命令有 " + results.size() + " 条");
+        }
+        List<Object> values = new ArrayList<>(rawValues.size());
+        for (int i = 0; i < rawValues.size(); i++) {
+            Object value = decoders.get(i).decode(redisTemplate, rawValues.get(i));
+            values.add(value);
+            results.get(i).complete(value);
+        }
+        return values;
+    }
+
+    private <T> PipelineResult<T> add(Consumer<RedisOperations<String, Object>> command, Decoder decoder) {
+        PipelineResult<T> result = new PipelineResult<>();
+        commands.add(command);
+        results.add(result);
+        decoders.add(decoder);
+        return result;
+    }
+
+    /**
+     * 命令结果的解码方式
+     */
+    private enum Decoder {
+        /**
+         * Boolean、Long 等不需要解码的结果
+         */
+        NONE,
+        /**
+         * 用值的序列化器解码
+         */
+        VALUE,
+        /**
+         * 用 hash 值的序列化器解码
+         */
+        HASH_VALUE;
+
+        Object decode(RedisTemplate<String, Object> redisTemplate, Object rawValue) {
+            if (this == NONE || !(rawValue instanceof byte[])) {
+                return rawValue;
+            }
+            RedisSerializer<?> serializer = this == VALUE
+                    ? redisTemplate.getValueSerializer() : redisTemplate.getHashValueSerializer();
+            return serializer.deserialize((byte[]) rawValue);
+        }
+    }
+}
@@ -1,14 +1,26 @@
 package com.konosuba.redis.provider.service.impl;
 
 
+import com.konosuba.redis.provider.cluster.ClusterKeyScanner;
+import com.konosuba.redis.provider.cluster.RedisSlotRouter;
+import com.konosuba.redis.provider.config.RedisMasterTemplate;
+import com.konosuba.redis.provider.script.RedisScriptRegistry;
+import com.konosuba.redis.provider.service.RedisPipeline;
 import com.konosuba.redis.provider.service.RedisService;
 import org.springframework.data.redis.connection.DataType;
 import org.springframework.data.redis.core.*;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 说明：redis工具类的实现
@@ -29,6 +41,49 @@ public class RedisServiceImpl implements RedisService {
     private SetOperations<String, Object> setOperations;
     @Resource
     private ZSetOperations<String, Object> zSetOperations;
+    @Resource
+    private RedisScriptRegistry redisScriptRegistry;
+    @Resource
+    private RedisSlotRouter redisSlotRouter;
+    @Resource
+    private RedisMasterTemplate redisMasterTemplate;
+
+    /**
+     * 只读主节点的视图，第一次调用 master() 时创建
+     */
+    private volatile RedisService master;
+
+    public RedisServiceImpl() {
+    }
+
+    /**
+     * 创建只读主节点的视图，除了使用的连接之外和当前对象一样
+     */
+    private RedisServiceImpl(RedisTemplate<String, Object> masterTemplate, RedisServiceImpl source) {
+        this.redisTemplate = masterTemplate;
+        this.valueOperations = masterTemplate.opsForValue();
+        this.hashOperations = masterTemplate.opsForHash();
+        this.listOperations = masterTemplate.opsForList();
+        this.setOperations = masterTemplate.opsForSet();
+        this.zSetOperations = masterTemplate.opsForZSet();
+        this.redisScriptRegistry = source.redisScriptRegistry;
+        this.redisSlotRouter = source.redisSlotRouter;
+        this.redisMasterTemplate = source.redisMasterTemplate;
+        this.master = this;
+    }
+
+    @Override
+    public RedisService master() {
+        if (master == null) {
+            synchronized (this) {
+                if (master == null) {
+                    master = redisMasterTemplate.isDefault()
+                            ? this : new RedisServiceImpl(redisMasterTemplate.getTemplate(), this);
+                }
+            }
+        }
+        return master;
+    }
 
     @Override
     public Boolean delete(String key) {
@@ -37,7 +92,16 @@ public class RedisServiceImpl implements RedisService {
 
     @Override
     public Long delete(Collection<String> keys) {
-        return redisTemplate.delete(keys);
+        if (!redisSlotRouter.isClustered()) {
+            return redisTemplate.delete(keys);
+        }
+        // 集群模式下 Spring 对跨 slot 的 DEL 逐个 key 发送，这里同一个 slot 的 key 用一条 DEL 删除，各 slot 并行
+        Map<Integer, List<String>> groups = redisSlotRouter.groupBySlot(keys);
+        long deleted = 0;
+        for (Long count : redisSlotRouter.fanOut(groups.values(), redisTemplate::delete)) {
+            deleted += count == null ? 0 : count;
+        }
+        return deleted;
     }
 
     @Override
@@ -61,10 +125,73 @@ public class RedisServiceImpl implements RedisService {
     }
 
     @Override
+    @Deprecated
     public Set<String> keys(String pattern) {
         return redisTemplate.keys(pattern);
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<String> scan(String pattern, long count) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(count).build();
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        if (redisSlotRouter.isClustered()) {
+            // 集群连接不支持 SCAN，依次扫描每个主节点
+            ClusterKeyScanner scanner = new ClusterKeyScanner(
+                    redisTemplate.getRequiredConnectionFactory().getClusterConnection(), options);
+            return keyStream(scanner, scanner, keySerializer);
+        }
+        // 游标要在同一个连接上继续，用 sticky connection，Cursor 关闭时释放
+        Cursor<byte[]> cursor = redisTemplate.executeWithStickyConnection(connection -> connection.scan(options));
+        return keyStream(cursor, cursor, keySerializer);
+    }
+
+    @Override
+    public long scan(String pattern, long count, int batchSize, Consumer<List<String>> consumer) {
+        long total = 0;
+        try (Stream<String> keys = scan(pattern, count)) {
+            List<String> batch = new ArrayList<>(batchSize);
+            Iterator<String> iterator = keys.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                total++;
+                if (batch.size() >= batchSize) {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                consumer.accept(batch);
+            }
+        }
+        return total;
+    }
+
+    private static Stream<String> keyStream(Iterator<byte[]> keys, Closeable closeable,
+                                            RedisSerializer<String> keySerializer) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(keys, Spliterator.NONNULL), false)
+                .map(keySerializer::deserialize)
+                .onClose(() -> {
+                    try {
+                        closeable.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    @Override
+    public List<Object> pipeline(Consumer<RedisPipeline> commands) {
+        RedisPipelineImpl pipeline = new RedisPipelineImpl();
+        commands.accept(pipeline);
+        return pipeline.execute(redisTemplate);
+    }
+
+    @Override
+    public <T> T executeScript(String name, Class<T> resultType, List<String> keys, Object... args) {
+        return redisTemplate.execute(redisScriptRegistry.getScript(name, resultType), keys, args);
+    }
+
     @Override
     public Boolean move(String key, int dbIndex) {
         return redisTemplate.move(key, dbIndex);
@@ -132,7 +259,26 @@ public class RedisServiceImpl implements RedisService {
 
     @Override
     public List<Object> multiGet(Collection<String> keys) {
-        return valueOperations.multiGet(keys);
+        if (!redisSlotRouter.isClustered() || keys.isEmpty()) {
+            return valueOperations.multiGet(keys);
+        }
+        // 集群模式下 Spring 对跨 slot 的 MGET 逐个 key 发送 GET，这里同一个 slot 的 key 用一条 MGET 读取，
+        // 各 slot 并行，再按原来的顺序拼起来
+        Map<Integer, List<String>> groups = redisSlotRouter.groupBySlot(keys);
+        List<List<Object>> results = redisSlotRouter.fanOut(groups.values(), valueOperations::multiGet);
+        Map<String, Object> values = new HashMap<>(keys.size() * 4 / 3 + 1);
+        Iterator<List<Object>> resultIterator = results.iterator();
+        for (List<String> group : groups.values()) {
+            List<Object> groupValues = resultIterator.next();
+            for (int i = 0; i < group.size(); i++) {
+                values.put(group.get(i), groupValues.get(i));
+            }
+        }
+        List<Object> ordered = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            ordered.add(values.get(key));
+        }
+        return ordered;
     }
 
     @Override
@@ -150,6 +296,11 @@ public class RedisServiceImpl implements RedisService {
         return valueOperations.setIfAbsent(key, value);
     }
 
+    @Override
+    public Boolean setIfAbsent(String key, String value, long timeout, TimeUnit timeUnit) {
+        return valueOperations.setIfAbsent(key, value, timeout, timeUnit);
+    }
+
     @Override
     public void set(String key, String value, long offset) {
         valueOperations.set(key, value, offset);
@@ -397,12 +548,33 @@ public class RedisServiceImpl implements RedisService {
 
     @Override
     public Set<Object> sIntersect(String key, String otherKey) {
-        return setOperations.intersect(key, otherKey);
+        return sIntersect(key, Collections.singletonList(otherKey));
     }
 
     @Override
     public Set<Object> sIntersect(String key, Collection<String> otherKeys) {
-        return setOperations.intersect(key, otherKeys);
+        if (!redisSlotRouter.isClustered()) {
+            return setOperations.intersect(key, otherKeys);
+        }
+        // 集群模式下同一个 slot 的集合在 redis 中求交集，各 slot 并行，再在本地求交集
+        List<String> keys = new ArrayList<>(otherKeys.size() + 1);
+        keys.add(key);
+        keys.addAll(otherKeys);
+        Map<Integer, List<String>> groups = redisSlotRouter.groupBySlot(keys);
+        List<Set<Object>> results = redisSlotRouter.fanOut(groups.values(),
+                group -> setOperations.intersect(group.get(0), group.subList(1, group.size())));
+        Set<Object> intersection = null;
+        for (Set<Object> result : results) {
+            if (result == null || result.isEmpty()) {
+                return new HashSet<>();
+            }
+            if (intersection == null) {
+                intersection = new HashSet<>(result);
+            } else {
+                intersection.retainAll(result);
+            }
+        }
+        return intersection;
     }
 
     @Override
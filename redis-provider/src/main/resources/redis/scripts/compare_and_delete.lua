@@ -0,0 +1,6 @@
+-- 值等于 ARGV[1] 时才删除 KEYS[1]，避免删掉别人写入的值
+-- 返回删除的 key 数量
+if redis.call('get', KEYS[1]) == ARGV[1] then
+    return redis.call('del', KEYS[1])
+end
+return 0
@@ -0,0 +1,13 @@
+-- 续约实例的租约，返回当前存活的实例数，各实例按这个数平分全局 QPS
+-- KEYS[1]：存活实例的有序集合，分数为租约到期时间
+-- ARGV[1]：实例 id
+-- ARGV[2]：租约时长（毫秒）
+redis.replicate_commands()
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local lease = tonumber(ARGV[2])
+
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now)
+redis.call('ZADD', KEYS[1], now + lease, ARGV[1])
+redis.call('PEXPIRE', KEYS[1], lease * 2)
+return redis.call('ZCARD', KEYS[1])
@@ -0,0 +1,29 @@
+-- 滑动窗口限流，所有窗口都有余量时才记一次
+-- KEYS[i]：第 i 个窗口的有序集合
+-- ARGV[1]：本次请求的成员
+-- ARGV[2i]、ARGV[2i+1]：第 i 个窗口的上限和窗口长度（毫秒）
+-- 返回 {0, 0} 表示通过；{i, 毫秒数} 表示第 i 个窗口已满，多久之后会有余量
+redis.replicate_commands()
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local member = ARGV[1]
+
+for i, key in ipairs(KEYS) do
+    local limit = tonumber(ARGV[2 * i])
+    local window = tonumber(ARGV[2 * i + 1])
+    redis.call('ZREMRANGEBYSCORE', key, '-inf', now - window)
+    if redis.call('ZCARD', key) >= limit then
+        local oldest = redis.call('ZRANGE', key, 0, 0, 'WITHSCORES')
+        local retryAfter = window
+        if oldest[2] then
+            retryAfter = tonumber(oldest[2]) + window - now
+        end
+        return {i, retryAfter}
+    end
+end
+
+for i, key in ipairs(KEYS) do
+    redis.call('ZADD', key, now, member)
+    redis.call('PEXPIRE', key, tonumber(ARGV[2 * i + 1]))
+end
+return {0, 0}
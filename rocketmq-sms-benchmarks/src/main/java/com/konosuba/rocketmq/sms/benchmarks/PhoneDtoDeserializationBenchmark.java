@@ -0,0 +1,36 @@
+package com.konosuba.rocketmq.sms.benchmarks;
+
+import com.alibaba.fastjson.JSON;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.konosuba.rocketmq.sms.consumer.domain.dto.PhoneDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 反序列化消息体，消费者的 application/json 消息由 Jackson 转换成 PhoneDto
+ *
+ * @author konosuba
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhoneDtoDeserializationBenchmark {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final byte[] payload = "{\"phone\":\"13800138000\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public PhoneDto jackson() throws IOException {
+        return objectMapper.readValue(payload, PhoneDto.class);
+    }
+
+    @Benchmark
+    public PhoneDto fastjson() {
+        return JSON.parseObject(payload, PhoneDto.class);
+    }
+}
@@ -0,0 +1,40 @@
+package com.konosuba.rocketmq.sms.benchmarks;
+
+import com.konosuba.rocketmq.sms.common.config.PhoneNumberProperties;
+import com.konosuba.rocketmq.sms.common.validator.PhoneNumberValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 校验手机号，对比原来每次调用 String.matches 的正则
+ *
+ * @author konosuba
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhoneValidationBenchmark {
+    /**
+     * 原来 smsSend 中的正则
+     */
+    private static final String PHONE_REGEX = "^((13[0-9])|(14[0,1,4-9])|(15[0-3,5-9])|(16[2,5,6,7])|(17[0-8])|(18[0-9])|(19[0-3,5-9]))\\d{8}$";
+
+    private final PhoneNumberValidator validator = new PhoneNumberValidator(new PhoneNumberProperties());
+
+    @Param({"13800138000", "12345678901"})
+    private String phone;
+
+    @Benchmark
+    public boolean regex() {
+        return phone.matches(PHONE_REGEX);
+    }
+
+    @Benchmark
+    public boolean validator() {
+        return validator.isValid(phone);
+    }
+}
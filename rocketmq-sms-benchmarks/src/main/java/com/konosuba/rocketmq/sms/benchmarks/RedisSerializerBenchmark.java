@@ -0,0 +1,100 @@
+package com.konosuba.rocketmq.sms.benchmarks;
+
+import com.konosuba.redis.provider.serializer.RedisValueCodec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisConfig 中值的序列化，比较 FASTJSON 和 COMPACT 的编解码耗时
+ * <p>
+ * 编码后的字节数见 encodedSize 的 bytes 计数器；setUp 时检查解码后和原值一致，
+ * 只有 COMPACT 的顶层数字按设计读回字符串（原样保存，INCR 可以直接使用）
+ *
+ * @author konosuba
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializerBenchmark {
+    @Param({"FASTJSON", "COMPACT"})
+    private RedisValueCodec codec;
+    /**
+     * code：验证码字符串；number：计数器的值；list：手机号列表；map：带数字和列表的 hash 值
+     */
+    @Param({"code", "number", "list", "map"})
+    private String payload;
+
+    private RedisSerializer<Object> serializer;
+    private Object value;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        serializer = codec.serializer();
+        if ("code".equals(payload)) {
+            value = "123456";
+        } else if ("number".equals(payload)) {
+            value = 1_600_000_000_000L;
+        } else if ("list".equals(payload)) {
+            value = Arrays.asList("13800138000", "13900139000", "13700137000");
+        } else {
+            Map<String, Object> map = new HashMap<>(8);
+            map.put("phone", "13800138000");
+            map.put("code", "123456");
+            map.put("attempts", 3);
+            map.put("sentAt", System.currentTimeMillis());
+            map.put("templates", Arrays.asList("SMS_1", "SMS_2"));
+            value = map;
+        }
+        encoded = serializer.serialize(value);
+        Object decoded = serializer.deserialize(encoded);
+        Object expected = codec == RedisValueCodec.COMPACT && value instanceof Number ? value.toString() : value;
+        if (!expected.equals(decoded)) {
+            throw new IllegalStateException(codec + " " + payload + " 解码后和原值不一致：" + decoded);
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(encoded);
+    }
+
+    @Benchmark
+    public void roundTrip(Blackhole blackhole) {
+        blackhole.consume(serializer.deserialize(serializer.serialize(value)));
+    }
+
+    /**
+     * 编码后的字节数，只测一轮，EVENTS 计数器在各轮之间会累加
+     */
+    @Benchmark
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public int encodedSize(EncodedSize size) {
+        size.bytes = encoded.length;
+        return encoded.length;
+    }
+
+    /**
+     * 结果中的 encodedSize:bytes
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+        public long bytes;
+    }
+}
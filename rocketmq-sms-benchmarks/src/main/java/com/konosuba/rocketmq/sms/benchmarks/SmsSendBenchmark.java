@@ -0,0 +1,64 @@
+package com.konosuba.rocketmq.sms.benchmarks;
+
+import com.konosuba.redis.provider.service.RedisService;
+import com.konosuba.rocketmq.sms.benchmarks.support.BenchmarkBeans;
+import com.konosuba.rocketmq.sms.benchmarks.support.InMemoryRedisService;
+import com.konosuba.rocketmq.sms.benchmarks.support.StubSmsGatewayClient;
+import com.konosuba.rocketmq.sms.common.config.PhoneNumberProperties;
+import com.konosuba.rocketmq.sms.common.redis.SmsRedisKeys;
+import com.konosuba.rocketmq.sms.common.validator.PhoneNumberValidator;
+import com.konosuba.rocketmq.sms.consumer.config.SmsConfig;
+import com.konosuba.rocketmq.sms.consumer.config.SmsRateLimitProperties;
+import com.konosuba.rocketmq.sms.consumer.domain.dto.PhoneDto;
+import com.konosuba.rocketmq.sms.consumer.gateway.SmsBatchDispatcher;
+import com.konosuba.rocketmq.sms.consumer.ratelimit.SmsRateLimiter;
+import com.konosuba.rocketmq.sms.consumer.service.impl.SmsServiceImpl;
+import com.konosuba.rocketmq.sms.consumer.utils.VerificationCodeGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 完整的 smsSend 流程，网关和 redis 都换成内存实现，只测消费者自身的开销
+ *
+ * @author konosuba
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SmsSendBenchmark {
+    private RedisService redisService;
+    private SmsServiceImpl smsService;
+    private PhoneDto phoneDto;
+
+    @Setup
+    public void setUp() {
+        redisService = InMemoryRedisService.create();
+        smsService = new SmsServiceImpl();
+        BenchmarkBeans.inject(smsService, "redisService", redisService);
+        BenchmarkBeans.inject(smsService, "smsGatewayClient", new StubSmsGatewayClient());
+        // 未初始化的 SmsBatchDispatcher 不开启批量发送
+        BenchmarkBeans.inject(smsService, "smsBatchDispatcher", new SmsBatchDispatcher());
+        BenchmarkBeans.inject(smsService, "verificationCodeGenerator", new VerificationCodeGenerator(6, VerificationCodeGenerator.DIGITS));
+        BenchmarkBeans.inject(smsService, "phoneNumberValidator", new PhoneNumberValidator(new PhoneNumberProperties()));
+        SmsConfig smsConfig = new SmsConfig();
+        smsConfig.setCodeTtlSeconds(300);
+        BenchmarkBeans.inject(smsService, "smsConfig", smsConfig);
+        // 限流是一次 lua 脚本调用，内存版 redis 不支持，这里关闭
+        SmsRateLimitProperties rateLimitProperties = new SmsRateLimitProperties();
+        rateLimitProperties.setEnabled(false);
+        BenchmarkBeans.inject(smsService, "smsRateLimiter", new SmsRateLimiter(null, rateLimitProperties));
+        phoneDto = new PhoneDto();
+        phoneDto.setPhone("13800138000");
+    }
+
+    @Benchmark
+    public void smsSend() throws Exception {
+        smsService.smsSend(phoneDto);
+        // 清掉冷却，下一次调用才能走完整的发送流程
+        redisService.delete(SmsRedisKeys.cooldown(phoneDto.getPhone()));
+    }
+}
@@ -0,0 +1,83 @@
+package com.konosuba.rocketmq.sms.benchmarks;
+
+import com.konosuba.redis.provider.service.RedisService;
+import com.konosuba.rocketmq.sms.benchmarks.support.InMemoryRedisService;
+import com.konosuba.rocketmq.sms.common.trace.Span;
+import com.konosuba.rocketmq.sms.common.trace.SpanReporter;
+import com.konosuba.rocketmq.sms.common.trace.TraceContext;
+import com.konosuba.rocketmq.sms.common.trace.Tracer;
+import com.konosuba.rocketmq.sms.common.trace.TracingRedisService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 链路追踪在消费热点路径上的额外开销
+ * <p>
+ * consume 模拟一次消费：接上消息头中的链路（没有 traceparent 时按 sampleRate 采样）、三次 redis 访问、结束 span，
+ * 与不追踪的 consumeUntraced 比较；redisOutsideTrace 是没有链路时（例如 QPS 租约续约）访问 redis 的开销。
+ * span 交给 SpanReporter.NOOP，不包含日志输出的耗时
+ *
+ * @author konosuba
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TracingBenchmark {
+    private static final String KEY = "sms:code:13800138000";
+    private static final String TRACEPARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    /**
+     * 0：只传递 traceparent；0.1：默认配置；1：全部记录
+     */
+    @Param({"0", "0.1", "1"})
+    private double sampleRate;
+
+    private Tracer tracer;
+    private RedisService redisService;
+    private RedisService tracedRedisService;
+
+    @Setup
+    public void setUp() {
+        tracer = new Tracer(sampleRate, SpanReporter.NOOP);
+        redisService = InMemoryRedisService.create();
+        redisService.set(KEY, "123456");
+        tracedRedisService = new TracingRedisService(redisService, tracer);
+    }
+
+    @Benchmark
+    public void consumeUntraced(Blackhole blackhole) {
+        blackhole.consume(redisService.get(KEY));
+        blackhole.consume(redisService.get(KEY));
+        blackhole.consume(redisService.get(KEY));
+    }
+
+    @Benchmark
+    public void consume(Blackhole blackhole) {
+        Span span = tracer.joinSpan("sms.consume", null).tag("type", "OTP");
+        try (Tracer.Scope ignored = tracer.withSpan(span)) {
+            blackhole.consume(tracedRedisService.get(KEY));
+            blackhole.consume(tracedRedisService.get(KEY));
+            blackhole.consume(tracedRedisService.get(KEY));
+        } finally {
+            span.finish();
+        }
+    }
+
+    @Benchmark
+    public Object redisOutsideTrace() {
+        return tracedRedisService.get(KEY);
+    }
+
+    /**
+     * 消费者解析 traceparent、生产者生成 traceparent 各一次
+     */
+    @Benchmark
+    public String propagate() {
+        return TraceContext.parse(TRACEPARENT).toTraceparent();
+    }
+}
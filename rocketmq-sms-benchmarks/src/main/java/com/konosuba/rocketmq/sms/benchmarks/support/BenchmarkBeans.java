@@ -0,0 +1,32 @@
+package com.konosuba.rocketmq.sms.benchmarks.support;
+
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+
+/**
+ * 不启动 Spring 容器，手动给 @Resource 字段赋值
+ *
+ * @author konosuba
+ */
+public final class BenchmarkBeans {
+
+    private BenchmarkBeans() {
+    }
+
+    /**
+     * 给对象的字段赋值
+     *
+     * @param target 目标对象
+     * @param name   字段名
+     * @param value  值
+     */
+    public static void inject(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        if (field == null) {
+            throw new IllegalArgumentException(target.getClass().getName() + " 没有字段 " + name);
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
@@ -0,0 +1,84 @@
+package com.konosuba.rocketmq.sms.benchmarks.support;
+
+import com.konosuba.redis.provider.service.PipelineResult;
+import com.konosuba.redis.provider.service.RedisPipeline;
+import com.konosuba.redis.provider.service.RedisService;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 基准测试用的内存版 RedisService，只实现发送短信用到的方法，忽略过期时间
+ *
+ * @author konosuba
+ */
+public final class InMemoryRedisService implements InvocationHandler {
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+
+    private InMemoryRedisService() {
+    }
+
+    public static RedisService create() {
+        return (RedisService) Proxy.newProxyInstance(RedisService.class.getClassLoader(),
+                new Class<?>[]{RedisService.class}, new InMemoryRedisService());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "get":
+                return values.get(args[0]);
+            case "hasKey":
+                return values.containsKey(args[0]);
+            case "set":
+                values.put((String) args[0], args[1]);
+                return null;
+            case "setIfAbsent":
+                return values.putIfAbsent((String) args[0], args[1]) == null;
+            case "delete":
+                return values.remove(args[0]) != null;
+            case "pipeline":
+                return pipeline(proxy, (Consumer<RedisPipeline>) args[0]);
+            case "executeScript":
+                return executeScript((String) args[0], (List<?>) args[2], (Object[]) args[3]);
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "InMemoryRedisService" + values;
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+
+    /**
+     * 管道中的命令直接按顺序执行
+     */
+    private List<Object> pipeline(Object proxy, Consumer<RedisPipeline> commands) {
+        List<Object> results = new ArrayList<>();
+        commands.accept((RedisPipeline) Proxy.newProxyInstance(RedisPipeline.class.getClassLoader(),
+                new Class<?>[]{RedisPipeline.class}, (pipeline, method, args) -> {
+                    Object value = invoke(proxy, method, args);
+                    results.add(value);
+                    PipelineResult<Object> result = new PipelineResult<>();
+                    result.complete(value);
+                    return result;
+                }));
+        return results;
+    }
+
+    private Object executeScript(String name, List<?> keys, Object[] args) {
+        if ("compare_and_delete".equals(name)) {
+            return values.remove(keys.get(0), args[0]) ? 1L : 0L;
+        }
+        throw new UnsupportedOperationException(name);
+    }
+}
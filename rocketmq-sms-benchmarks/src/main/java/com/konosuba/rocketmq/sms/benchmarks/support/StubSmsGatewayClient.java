@@ -0,0 +1,32 @@
+package com.konosuba.rocketmq.sms.benchmarks.support;
+
+import com.alibaba.fastjson.JSONObject;
+import com.aliyuncs.CommonResponse;
+import com.konosuba.rocketmq.sms.common.message.SmsType;
+import com.konosuba.rocketmq.sms.consumer.gateway.SmsGatewayClient;
+
+import java.util.List;
+
+/**
+ * 基准测试用的短信网关，不发请求，直接返回成功
+ *
+ * @author konosuba
+ */
+public class StubSmsGatewayClient extends SmsGatewayClient {
+    private final CommonResponse response;
+
+    public StubSmsGatewayClient() {
+        response = new CommonResponse();
+        response.setData("{\"Message\":\"OK\",\"RequestId\":\"benchmark\",\"BizId\":\"benchmark\",\"Code\":\"OK\"}");
+    }
+
+    @Override
+    public CommonResponse sendSms(SmsType type, String phone, String templateParam) {
+        return response;
+    }
+
+    @Override
+    public CommonResponse sendBatchSms(SmsType type, List<String> phones, List<JSONObject> templateParams) {
+        return response;
+    }
+}
@@ -0,0 +1,26 @@
+package com.konosuba.rocketmq.sms.common.config;
+
+import com.konosuba.rocketmq.sms.common.validator.PhoneNumberValidator;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 手机号校验配置类
+ *
+ * @author konosuba
+ */
+@Configuration
+@EnableConfigurationProperties(PhoneNumberProperties.class)
+public class PhoneNumberConfig {
+    /**
+     * 将 PhoneNumberValidator 对象注册到容器中
+     *
+     * @param phoneNumberProperties sms.phone 下的校验规则
+     * @return PhoneNumberValidator 对象
+     */
+    @Bean
+    public PhoneNumberValidator phoneNumberValidator(PhoneNumberProperties phoneNumberProperties) {
+        return new PhoneNumberValidator(phoneNumberProperties);
+    }
+}
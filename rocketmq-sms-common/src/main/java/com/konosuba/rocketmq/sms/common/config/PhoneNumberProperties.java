@@ -0,0 +1,55 @@
+package com.konosuba.rocketmq.sms.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 手机号校验规则，前缀支持 "144-149" 这样的区间写法
+ *
+ * @author konosuba
+ */
+@Data
+@ConfigurationProperties(prefix = "sms.phone")
+public class PhoneNumberProperties {
+    /**
+     * 不带 +国家码 的号码按这个地区校验
+     */
+    private String defaultRegion = "CN";
+    /**
+     * 各地区的规则，key 为地区代码
+     */
+    private Map<String, Region> regions = new LinkedHashMap<>();
+
+    public PhoneNumberProperties() {
+        // 大陆手机号
+        Region china = new Region();
+        china.setCountryCode("86");
+        china.setLength(11);
+        china.setPrefixes(new ArrayList<>(Arrays.asList(
+                "13", "140", "141", "144-149", "150-153", "155-159", "162", "165-167",
+                "170-178", "18", "190-193", "195-199")));
+        regions.put("CN", china);
+    }
+
+    @Data
+    public static class Region {
+        /**
+         * 国家码，不带 +
+         */
+        private String countryCode;
+        /**
+         * 不含国家码的号码长度
+         */
+        private int length;
+        /**
+         * 号段前缀
+         */
+        private List<String> prefixes = new ArrayList<>();
+    }
+}
@@ -0,0 +1,75 @@
+package com.konosuba.rocketmq.sms.common.config;
+
+import com.konosuba.redis.provider.service.RedisService;
+import com.konosuba.redis.provider.service.RedisServiceDecorator;
+import com.konosuba.rocketmq.sms.common.trace.InMemorySpanReporter;
+import com.konosuba.rocketmq.sms.common.trace.LoggingSpanReporter;
+import com.konosuba.rocketmq.sms.common.trace.SpanReporter;
+import com.konosuba.rocketmq.sms.common.trace.Tracer;
+import com.konosuba.rocketmq.sms.common.trace.TracingRedisService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 链路追踪配置类
+ *
+ * @author konosuba
+ */
+@Configuration
+@EnableConfigurationProperties(TraceProperties.class)
+public class TraceConfig {
+    /**
+     * 将 SpanReporter 对象注册到容器中
+     *
+     * @param traceProperties sms.trace 下的配置
+     * @return SpanReporter 对象
+     */
+    @Bean
+    public SpanReporter spanReporter(TraceProperties traceProperties) {
+        switch (traceProperties.getExporter()) {
+            case MEMORY:
+                return new InMemorySpanReporter(traceProperties.getMemoryCapacity());
+            case NONE:
+                return SpanReporter.NOOP;
+            default:
+                return new LoggingSpanReporter();
+        }
+    }
+
+    /**
+     * 将 Tracer 对象注册到容器中
+     *
+     * @param traceProperties sms.trace 下的配置
+     * @param spanReporter    SpanReporter
+     * @return Tracer 对象
+     */
+    @Bean
+    public Tracer tracer(TraceProperties traceProperties, SpanReporter spanReporter) {
+        return new Tracer(traceProperties.getSampleRate(), spanReporter);
+    }
+
+    /**
+     * 为 redis 的每次访问创建子 span，由 RedisServiceDecoratorConfig 按 TRACING_ORDER 包装在耗时统计外面，
+     * 本地缓存命中的读取不产生 span；sms.trace.redis=false 时不包装
+     *
+     * @param tracer Tracer
+     * @return RedisServiceDecorator 对象
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "sms.trace", name = "redis", havingValue = "true", matchIfMissing = true)
+    public RedisServiceDecorator tracingRedisServiceDecorator(Tracer tracer) {
+        return new RedisServiceDecorator() {
+            @Override
+            public RedisService decorate(RedisService redisService) {
+                return new TracingRedisService(redisService, tracer);
+            }
+
+            @Override
+            public int getOrder() {
+                return TRACING_ORDER;
+            }
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.konosuba.rocketmq.sms.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 链路追踪配置
+ *
+ * @author konosuba
+ */
+@Data
+@ConfigurationProperties(prefix = "sms.trace")
+public class TraceProperties {
+    /**
+     * 新链路的采样率，0 到 1；上游已经决定是否采样的链路沿用上游的结果。
+     * 0 时仍然传递 traceparent，但不记录任何 span
+     */
+    private double sampleRate = 0.1;
+    /**
+     * 采样的 span 交给谁
+     */
+    private Exporter exporter = Exporter.LOG;
+    /**
+     * exporter 为 MEMORY 时最多保留的 span 数
+     */
+    private int memoryCapacity = 1000;
+    /**
+     * 是否为 redis 的每次访问记录子 span
+     */
+    private boolean redis = true;
+
+    public enum Exporter {
+        /**
+         * 打印到 sms.trace 日志
+         */
+        LOG,
+        /**
+         * 保留在内存中，本地调试用
+         */
+        MEMORY,
+        /**
+         * 丢弃
+         */
+        NONE
+    }
+}
@@ -0,0 +1,61 @@
+package com.konosuba.rocketmq.sms.common.message;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 生产者和消费者共用的消息头，RocketMQ 中保存为消息的用户属性
+ *
+ * @author konosuba
+ */
+public final class SmsMessageHeaders {
+    /**
+     * 消息的业务唯一键，生产者生成，重试和重新投递时不变，消费者按它去重
+     */
+    public static final String MESSAGE_KEY = "smsMessageKey";
+    /**
+     * 分区键，取收信人手机号，同一号码的消息进入同一个队列，顺序消费时按号码串行处理
+     */
+    public static final String SHARDING_KEY = "smsShardingKey";
+    /**
+     * 生产者收到请求的时间（毫秒时间戳），重试时不变，用于统计端到端耗时
+     */
+    public static final String ACCEPTED_AT = "smsAcceptedAt";
+    /**
+     * 消息交给 RocketMQ 的时间（毫秒时间戳），重试时更新，用于统计消息在 broker 中停留的时间
+     */
+    public static final String PUBLISHED_AT = "smsPublishedAt";
+    /**
+     * 链路上下文，W3C Trace Context 格式，与 HTTP 请求头同名，见 TraceContext
+     */
+    public static final String TRACEPARENT = "traceparent";
+
+    private SmsMessageHeaders() {
+    }
+
+    /**
+     * 生成消息的唯一键，只用于去重，不需要 SecureRandom
+     *
+     * @return 唯一键
+     */
+    public static String newMessageKey() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+
+    /**
+     * 分区键对应的分区，与 Spring Cloud Stream 默认的 partition selector 算法一致，
+     * 直接使用 RocketMQ 客户端发送的消息和 binder 发送的消息落在同一个队列
+     *
+     * @param shardingKey    分区键
+     * @param partitionCount 分区数，即 topic 的队列数
+     * @return 分区下标
+     */
+    public static int partition(String shardingKey, int partitionCount) {
+        int hashCode = shardingKey.hashCode();
+        if (hashCode == Integer.MIN_VALUE) {
+            hashCode = 0;
+        }
+        return Math.abs(hashCode) % partitionCount;
+    }
+}
@@ -0,0 +1,17 @@
+package com.konosuba.rocketmq.sms.common.message;
+
+/**
+ * 短信类型，不同类型走不同的 topic 和消费者，互不影响
+ *
+ * @author konosuba
+ */
+public enum SmsType {
+    /**
+     * 验证码，对延迟敏感
+     */
+    OTP,
+    /**
+     * 营销短信，量大，可以慢慢发
+     */
+    MARKETING
+}
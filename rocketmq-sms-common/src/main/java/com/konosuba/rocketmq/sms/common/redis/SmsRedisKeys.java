@@ -0,0 +1,104 @@
+package com.konosuba.rocketmq.sms.common.redis;
+
+import com.konosuba.rocketmq.sms.common.message.SmsType;
+
+/**
+ * 短信相关的 redis key
+ * <p>
+ * 手机号放在 hash tag {} 中，同一个手机号的 key 在集群中落在同一个 slot，可以在一个 lua 脚本里一起操作
+ *
+ * @author konosuba
+ */
+public final class SmsRedisKeys {
+
+    private SmsRedisKeys() {
+    }
+
+    /**
+     * 发送冷却，值为发送的验证码，只用来限制发送频率
+     *
+     * @param phone 手机号
+     * @return sms:cooldown:{phone}
+     */
+    public static String cooldown(String phone) {
+        return tagged("sms:cooldown", phone);
+    }
+
+    /**
+     * 按短信类型区分的发送冷却，营销短信不占用验证码的冷却，活动短信不会让用户 60 秒内收不到验证码
+     *
+     * @param type  短信类型
+     * @param phone 手机号
+     * @return 验证码为 sms:cooldown:{phone}，其他类型为 sms:cooldown:type:{phone}
+     */
+    public static String cooldown(SmsType type, String phone) {
+        if (type == null || type == SmsType.OTP) {
+            return cooldown(phone);
+        }
+        return tagged("sms:cooldown:" + type.name().toLowerCase(), phone);
+    }
+
+    /**
+     * 待校验的验证码
+     *
+     * @param phone 手机号
+     * @return sms:code:{phone}
+     */
+    public static String code(String phone) {
+        return tagged("sms:code", phone);
+    }
+
+    /**
+     * 验证码校验失败的次数，和验证码在同一个 slot
+     *
+     * @param phone 手机号
+     * @return sms:code:{phone}:attempts
+     */
+    public static String codeAttempts(String phone) {
+        return tagged("sms:code", phone) + ":attempts";
+    }
+
+    /**
+     * 手机号的发送次数
+     *
+     * @param rule  限流规则名
+     * @param phone 手机号
+     * @return sms:rate:rule:{phone}
+     */
+    public static String rateLimit(String rule, String phone) {
+        return tagged("sms:rate:" + rule, phone);
+    }
+
+    /**
+     * 所有短信的发送次数
+     *
+     * @param rule 限流规则名
+     * @return sms:rate:rule:{global}
+     */
+    public static String globalRateLimit(String rule) {
+        return tagged("sms:rate:" + rule, "global");
+    }
+
+    /**
+     * 消息的处理状态，用于去重
+     *
+     * @param messageKey 消息的唯一键
+     * @return sms:msg:messageKey
+     */
+    public static String message(String messageKey) {
+        return "sms:msg:" + messageKey;
+    }
+
+    /**
+     * 平分网关 QPS 的存活实例
+     *
+     * @return sms:gateway:lease
+     */
+    public static String gatewayLease() {
+        return "sms:gateway:lease";
+    }
+
+    private static String tagged(String prefix, String phone) {
+        return prefix + ":{" + phone + "}";
+    }
+}
@@ -0,0 +1,44 @@
+package com.konosuba.rocketmq.sms.common.trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 在内存中保留最近的 span，满了以后丢弃最早的，用于本地调试
+ *
+ * @author konosuba
+ */
+public class InMemorySpanReporter implements SpanReporter {
+    private final ArrayBlockingQueue<Span> spans;
+
+    /**
+     * @param capacity 最多保留的 span 数
+     */
+    public InMemorySpanReporter(int capacity) {
+        this.spans = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    @Override
+    public void report(Span span) {
+        while (!spans.offer(span)) {
+            spans.poll();
+        }
+    }
+
+    /**
+     * 最近的 span，按结束的先后排列
+     *
+     * @return span 列表的副本
+     */
+    public List<Span> recent() {
+        return new ArrayList<>(spans);
+    }
+
+    /**
+     * 清空已经保留的 span
+     */
+    public void clear() {
+        spans.clear();
+    }
+}
@@ -0,0 +1,24 @@
+package com.konosuba.rocketmq.sms.common.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 把 span 打印到 sms.trace 日志，本地调试时用 traceId 把生产者和消费者的日志串起来
+ *
+ * @author konosuba
+ */
+public class LoggingSpanReporter implements SpanReporter {
+    private static final Logger log = LoggerFactory.getLogger("sms.trace");
+
+    @Override
+    public void report(Span span) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        TraceContext context = span.context();
+        log.info("span name={} traceId={} spanId={} parentId={} durationMicros={} tags={}{}",
+                span.getName(), context.traceIdString(), context.spanIdString(), context.parentIdString(),
+                span.getDurationNanos() / 1000, span.getTags(), span.getError() == null ? "" : " error=" + span.getError());
+    }
+}
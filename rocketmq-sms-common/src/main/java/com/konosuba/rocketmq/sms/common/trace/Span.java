@@ -0,0 +1,125 @@
+package com.konosuba.rocketmq.sms.common.trace;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 链路中的一段耗时，例如一次发布、一次消费、一次 redis 或网关调用
+ * <p>
+ * 只有采样的 span 记录标签和耗时，finish 时交给 SpanReporter；不采样的 span 只携带 TraceContext 传给下游，
+ * 其余方法什么都不做。span 不是线程安全的，交给其他线程结束后原线程不能再修改它
+ *
+ * @author konosuba
+ */
+public final class Span {
+    /**
+     * 没有链路时使用，不记录也不传递
+     */
+    public static final Span NOOP = new Span(null, null, null);
+
+    private final String name;
+    private final TraceContext context;
+    private final SpanReporter reporter;
+    private final long startMillis;
+    private final long startNanos;
+    private long durationNanos = -1;
+    private Map<String, String> tags;
+    private String error;
+
+    Span(String name, TraceContext context, SpanReporter reporter) {
+        this.name = name;
+        this.context = context;
+        this.reporter = reporter;
+        if (isRecording()) {
+            this.startMillis = System.currentTimeMillis();
+            this.startNanos = System.nanoTime();
+        } else {
+            this.startMillis = 0;
+            this.startNanos = 0;
+        }
+    }
+
+    /**
+     * 是否记录这个 span，标签的值需要额外计算时先判断它
+     *
+     * @return 采样时返回 true
+     */
+    public boolean isRecording() {
+        return context != null && context.isSampled();
+    }
+
+    /**
+     * 添加标签
+     *
+     * @param key   标签名
+     * @param value 标签值
+     * @return this
+     */
+    public Span tag(String key, String value) {
+        if (isRecording() && durationNanos < 0) {
+            if (tags == null) {
+                tags = new LinkedHashMap<>(4);
+            }
+            tags.put(key, value);
+        }
+        return this;
+    }
+
+    /**
+     * 记录异常，只保留异常类名和 message
+     *
+     * @param throwable 异常
+     * @return this
+     */
+    public Span error(Throwable throwable) {
+        if (isRecording() && durationNanos < 0) {
+            error = throwable.getClass().getSimpleName() + ": " + throwable.getMessage();
+        }
+        return this;
+    }
+
+    /**
+     * 结束 span 并上报，重复调用只上报一次
+     */
+    public void finish() {
+        if (!isRecording() || durationNanos >= 0) {
+            return;
+        }
+        durationNanos = System.nanoTime() - startNanos;
+        reporter.report(this);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 链路上下文，NOOP 返回 null
+     */
+    public TraceContext context() {
+        return context;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @return 耗时（纳秒），未结束时返回 -1
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public Map<String, String> getTags() {
+        return tags == null ? Collections.emptyMap() : Collections.unmodifiableMap(tags);
+    }
+
+    /**
+     * @return 异常信息，没有异常时返回 null
+     */
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,21 @@
+package com.konosuba.rocketmq.sms.common.trace;
+
+/**
+ * 接收结束的 span，只会收到采样的 span，在结束 span 的线程中调用，实现不能阻塞
+ *
+ * @author konosuba
+ */
+public interface SpanReporter {
+    /**
+     * 丢弃所有 span
+     */
+    SpanReporter NOOP = span -> {
+    };
+
+    /**
+     * 上报一个结束的 span
+     *
+     * @param span 已经结束的 span
+     */
+    void report(Span span);
+}
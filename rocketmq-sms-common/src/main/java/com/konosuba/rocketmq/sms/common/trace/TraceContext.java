@@ -0,0 +1,125 @@
+package com.konosuba.rocketmq.sms.common.trace;
+
+/**
+ * 一个 span 在链路中的位置，按 W3C Trace Context 的 traceparent 格式在进程之间传递：
+ * <pre>00-{32 位十六进制 traceId}-{16 位十六进制 spanId}-{01 采样 | 00 不采样}</pre>
+ * 不采样的链路也会传递下去，下游沿用上游的采样结果，一条链路要么完整记录，要么都不记录
+ *
+ * @author konosuba
+ */
+public final class TraceContext {
+    private static final String VERSION = "00";
+    private static final int TRACEPARENT_LENGTH = 55;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long traceIdHigh;
+    private final long traceIdLow;
+    private final long spanId;
+    private final long parentId;
+    private final boolean sampled;
+
+    TraceContext(long traceIdHigh, long traceIdLow, long spanId, long parentId, boolean sampled) {
+        this.traceIdHigh = traceIdHigh;
+        this.traceIdLow = traceIdLow;
+        this.spanId = spanId;
+        this.parentId = parentId;
+        this.sampled = sampled;
+    }
+
+    /**
+     * 解析 traceparent，格式不对或 id 全为 0 时返回 null，由调用方开始新的链路
+     *
+     * @param traceparent 消息头或 HTTP 请求头中的值
+     * @return TraceContext 对象，parentId 为 0，spanId 是上游的 span
+     */
+    public static TraceContext parse(String traceparent) {
+        if (traceparent == null || traceparent.length() != TRACEPARENT_LENGTH || !traceparent.startsWith(VERSION)
+                || traceparent.charAt(2) != '-' || traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-') {
+            return null;
+        }
+        try {
+            long high = Long.parseUnsignedLong(traceparent.substring(3, 19), 16);
+            long low = Long.parseUnsignedLong(traceparent.substring(19, 35), 16);
+            long spanId = Long.parseUnsignedLong(traceparent.substring(36, 52), 16);
+            int flags = Integer.parseInt(traceparent.substring(53, 55), 16);
+            if ((high == 0 && low == 0) || spanId == 0) {
+                return null;
+            }
+            return new TraceContext(high, low, spanId, 0, (flags & 1) == 1);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 转换为 traceparent，放进消息头传给下游
+     *
+     * @return traceparent 字符串
+     */
+    public String toTraceparent() {
+        char[] chars = new char[TRACEPARENT_LENGTH];
+        chars[0] = '0';
+        chars[1] = '0';
+        chars[2] = '-';
+        writeHex(chars, 3, traceIdHigh);
+        writeHex(chars, 19, traceIdLow);
+        chars[35] = '-';
+        writeHex(chars, 36, spanId);
+        chars[52] = '-';
+        chars[53] = '0';
+        chars[54] = sampled ? '1' : '0';
+        return new String(chars);
+    }
+
+    public String traceIdString() {
+        char[] chars = new char[32];
+        writeHex(chars, 0, traceIdHigh);
+        writeHex(chars, 16, traceIdLow);
+        return new String(chars);
+    }
+
+    public String spanIdString() {
+        return toHex(spanId);
+    }
+
+    /**
+     * @return 上游 span 的 id，链路的第一个 span 返回 null
+     */
+    public String parentIdString() {
+        return parentId == 0 ? null : toHex(parentId);
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    long getTraceIdHigh() {
+        return traceIdHigh;
+    }
+
+    long getTraceIdLow() {
+        return traceIdLow;
+    }
+
+    long getSpanId() {
+        return spanId;
+    }
+
+    private static String toHex(long value) {
+        char[] chars = new char[16];
+        writeHex(chars, 0, value);
+        return new String(chars);
+    }
+
+    private static void writeHex(char[] chars, int offset, long value) {
+        for (int i = 15; i >= 0; i--) {
+            chars[offset + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toTraceparent();
+    }
+}
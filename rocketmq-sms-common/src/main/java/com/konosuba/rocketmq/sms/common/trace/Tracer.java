@@ -0,0 +1,169 @@
+package com.konosuba.rocketmq.sms.common.trace;
+
+import org.slf4j.MDC;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 创建 span 并在线程中保存当前的链路上下文
+ * <p>
+ * 入口（生产者收到请求、消费者收到消息）用 joinSpan 接上游的 traceparent，没有时按 sampleRate 决定是否采样；
+ * 下游调用（redis、短信网关）用 childSpan，当前线程没有采样的链路时返回 Span.NOOP，不产生任何对象。
+ * 作用域内的 traceId 和 spanId 同时放进 MDC，日志格式中加上 %X{traceId} 即可关联日志
+ *
+ * @author konosuba
+ */
+public class Tracer {
+    public static final String MDC_TRACE_ID = "traceId";
+    public static final String MDC_SPAN_ID = "spanId";
+
+    private static final Scope NOOP_SCOPE = () -> {
+    };
+
+    private final ThreadLocal<TraceContext> current = new ThreadLocal<>();
+    private final double sampleRate;
+    private final SpanReporter reporter;
+
+    /**
+     * @param sampleRate 新链路的采样率，0 到 1，0 表示只传递 traceparent 不记录
+     * @param reporter   采样的 span 结束后交给它
+     */
+    public Tracer(double sampleRate, SpanReporter reporter) {
+        this.sampleRate = sampleRate;
+        this.reporter = reporter;
+    }
+
+    /**
+     * 当前线程的链路上下文
+     *
+     * @return TraceContext 对象，没有时返回 null
+     */
+    public TraceContext currentContext() {
+        return current.get();
+    }
+
+    /**
+     * 当前线程是否有采样的链路，span 名称需要拼接时先判断它，不采样时不产生字符串
+     *
+     * @return 有采样的链路时返回 true
+     */
+    public boolean isRecording() {
+        TraceContext context = current.get();
+        return context != null && context.isSampled();
+    }
+
+    /**
+     * 当前 span 的子 span，没有当前 span 时开始一条新的链路
+     *
+     * @param name span 名称
+     * @return Span 对象
+     */
+    public Span nextSpan(String name) {
+        TraceContext parent = current.get();
+        return parent == null ? newTrace(name) : newChild(name, parent);
+    }
+
+    /**
+     * 接上游传来的链路，traceparent 为空或格式不对时开始一条新的链路
+     *
+     * @param name        span 名称
+     * @param traceparent 上游的 traceparent
+     * @return Span 对象
+     */
+    public Span joinSpan(String name, String traceparent) {
+        TraceContext parent = TraceContext.parse(traceparent);
+        return parent == null ? newTrace(name) : newChild(name, parent);
+    }
+
+    /**
+     * 下游调用的子 span，只在当前线程有采样的链路时记录，不会开始新的链路
+     *
+     * @param name span 名称
+     * @return Span 对象，不记录时返回 Span.NOOP
+     */
+    public Span childSpan(String name) {
+        TraceContext parent = current.get();
+        if (parent == null || !parent.isSampled()) {
+            return Span.NOOP;
+        }
+        return newChild(name, parent);
+    }
+
+    /**
+     * 把 span 设为当前线程的 span，关闭返回的 Scope 时恢复之前的 span，不会结束 span
+     *
+     * @param span Span 对象
+     * @return Scope 对象，用 try-with-resources 关闭
+     */
+    public Scope withSpan(Span span) {
+        TraceContext context = span.context();
+        return context == null ? NOOP_SCOPE : attach(context);
+    }
+
+    /**
+     * 把当前线程的链路带到其他线程执行的任务中
+     *
+     * @param task 任务
+     * @return 在提交时的链路中执行的任务，当前没有链路时返回原任务
+     */
+    public Runnable wrap(Runnable task) {
+        TraceContext context = current.get();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            try (Scope ignored = attach(context)) {
+                task.run();
+            }
+        };
+    }
+
+    private Scope attach(TraceContext context) {
+        TraceContext previous = current.get();
+        current.set(context);
+        putMdc(context);
+        return () -> {
+            if (previous == null) {
+                current.remove();
+                MDC.remove(MDC_TRACE_ID);
+                MDC.remove(MDC_SPAN_ID);
+            } else {
+                current.set(previous);
+                putMdc(previous);
+            }
+        };
+    }
+
+    private Span newTrace(String name) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean sampled = sampleRate >= 1 || (sampleRate > 0 && random.nextDouble() < sampleRate);
+        return new Span(name, new TraceContext(nonZero(random), random.nextLong(), nonZero(random), 0, sampled), reporter);
+    }
+
+    private Span newChild(String name, TraceContext parent) {
+        TraceContext context = new TraceContext(parent.getTraceIdHigh(), parent.getTraceIdLow(),
+                nonZero(ThreadLocalRandom.current()), parent.getSpanId(), parent.isSampled());
+        return new Span(name, context, reporter);
+    }
+
+    private static long nonZero(ThreadLocalRandom random) {
+        long value;
+        do {
+            value = random.nextLong();
+        } while (value == 0);
+        return value;
+    }
+
+    private static void putMdc(TraceContext context) {
+        MDC.put(MDC_TRACE_ID, context.traceIdString());
+        MDC.put(MDC_SPAN_ID, context.spanIdString());
+    }
+
+    /**
+     * span 的作用域，关闭时不抛出受检异常
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
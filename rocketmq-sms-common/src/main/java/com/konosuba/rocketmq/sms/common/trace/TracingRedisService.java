@@ -0,0 +1,49 @@
+package com.konosuba.rocketmq.sms.common.trace;
+
+import com.konosuba.redis.provider.service.ForwardingRedisService;
+import com.konosuba.redis.provider.service.RedisService;
+
+import java.util.function.Supplier;
+
+/**
+ * 为 RedisService 的每次调用创建子 span，span 名称为 redis.方法名
+ * <p>
+ * 当前线程没有采样的链路时直接转发，只多一次 ThreadLocal 读取
+ *
+ * @author konosuba
+ */
+public class TracingRedisService extends ForwardingRedisService {
+    private final RedisService delegate;
+    private final Tracer tracer;
+
+    public TracingRedisService(RedisService delegate, Tracer tracer) {
+        this.delegate = delegate;
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected RedisService delegate() {
+        return delegate;
+    }
+
+    @Override
+    protected <T> T intercept(String method, Supplier<T> invocation) {
+        if (!tracer.isRecording()) {
+            return invocation.get();
+        }
+        Span span = tracer.childSpan("redis." + method);
+        try {
+            return invocation.get();
+        } catch (RuntimeException | Error e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.finish();
+        }
+    }
+
+    @Override
+    protected RedisService decorateMaster(RedisService master) {
+        return new TracingRedisService(master, tracer);
+    }
+}
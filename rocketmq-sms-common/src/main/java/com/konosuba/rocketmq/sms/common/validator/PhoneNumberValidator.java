@@ -0,0 +1,129 @@
+package com.konosuba.rocketmq.sms.common.validator;
+
+import com.konosuba.rocketmq.sms.common.config.PhoneNumberProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 手机号校验
+ * <p>
+ * 每个地区的号段编译成一棵数字前缀树，校验时只按字符走一遍，不用正则，也不分配对象。
+ * 号码以 +国家码 开头时按国家码对应的地区校验，否则按默认地区校验。
+ * 同一个号码可以有带和不带国家码两种写法，作为 redis 键或分区键之前先用 normalize 转换成统一的格式
+ *
+ * @author konosuba
+ */
+public class PhoneNumberValidator {
+    private final PrefixTrie countryCodes = new PrefixTrie();
+    private final List<RegionRule> rules = new ArrayList<>();
+    private final RegionRule defaultRule;
+
+    public PhoneNumberValidator(PhoneNumberProperties properties) {
+        RegionRule defaultRule = null;
+        for (Map.Entry<String, PhoneNumberProperties.Region> entry : properties.getRegions().entrySet()) {
+            PhoneNumberProperties.Region region = entry.getValue();
+            RegionRule rule = new RegionRule(region);
+            countryCodes.add(region.getCountryCode(), rules.size());
+            rules.add(rule);
+            if (entry.getKey().equals(properties.getDefaultRegion())) {
+                defaultRule = rule;
+            }
+        }
+        if (defaultRule == null) {
+            throw new IllegalArgumentException("没有配置默认地区 " + properties.getDefaultRegion() + " 的手机号规则");
+        }
+        this.defaultRule = defaultRule;
+    }
+
+    /**
+     * 校验手机号
+     *
+     * @param phone 手机号，可以带 +国家码
+     * @return 合法返回 true
+     */
+    public boolean isValid(String phone) {
+        if (phone == null || phone.isEmpty()) {
+            return false;
+        }
+        if (phone.charAt(0) != '+') {
+            return defaultRule.matches(phone, 0);
+        }
+        int end = countryCodes.matchEnd(phone, 1);
+        if (end < 0) {
+            return false;
+        }
+        return rules.get(countryCodes.value(phone, 1, end)).matches(phone, end);
+    }
+
+    /**
+     * 校验并转换为 E.164 格式（+国家码 号码），冷却、限流、验证码的键和分区键都必须用转换后的号码，
+     * 否则换一种写法就能绕过按号码的限制
+     *
+     * @param phone 手机号，可以带 +国家码
+     * @return +国家码 开头的号码，不合法返回 null
+     */
+    public String normalize(String phone) {
+        if (phone == null || phone.isEmpty()) {
+            return null;
+        }
+        if (phone.charAt(0) != '+') {
+            return defaultRule.matches(phone, 0) ? defaultRule.e164Prefix + phone : null;
+        }
+        return isValid(phone) ? phone : null;
+    }
+
+    /**
+     * 一个地区的校验规则
+     */
+    private static final class RegionRule {
+        private final String e164Prefix;
+        private final int length;
+        private final PrefixTrie prefixes = new PrefixTrie();
+
+        private RegionRule(PhoneNumberProperties.Region region) {
+            this.e164Prefix = "+" + region.getCountryCode();
+            this.length = region.getLength();
+            for (String prefix : region.getPrefixes()) {
+                addPrefix(prefix.trim());
+            }
+        }
+
+        /**
+         * 添加号段，"144-149" 展开为 144、145 ... 149
+         */
+        private void addPrefix(String prefix) {
+            int dash = prefix.indexOf('-');
+            if (dash < 0) {
+                prefixes.add(prefix, 0);
+                return;
+            }
+            String from = prefix.substring(0, dash);
+            String to = prefix.substring(dash + 1);
+            if (from.length() != to.length()) {
+                throw new IllegalArgumentException("号段区间两端长度必须相同：" + prefix);
+            }
+            for (long i = Long.parseLong(from), end = Long.parseLong(to); i <= end; i++) {
+                String digits = Long.toString(i);
+                while (digits.length() < from.length()) {
+                    digits = "0" + digits;
+                }
+                prefixes.add(digits, 0);
+            }
+        }
+
+        private boolean matches(String phone, int from) {
+            if (phone.length() - from != length) {
+                return false;
+            }
+            for (int i = from; i < phone.length(); i++) {
+                char c = phone.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+            return prefixes.matchEnd(phone, from) >= 0;
+        }
+    }
+}
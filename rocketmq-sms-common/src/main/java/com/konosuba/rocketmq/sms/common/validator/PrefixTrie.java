@@ -0,0 +1,108 @@
+package com.konosuba.rocketmq.sms.common.validator;
+
+import java.util.Arrays;
+
+/**
+ * 数字前缀树，节点用数组表示，查找时不分配对象
+ *
+ * @author konosuba
+ */
+final class PrefixTrie {
+    private static final int RADIX = 10;
+
+    /**
+     * children[node * 10 + digit] 为子节点编号，0 表示没有
+     */
+    private int[] children = new int[RADIX * 16];
+    /**
+     * values[node] 为终结节点的值 + 1，0 表示不是终结节点
+     */
+    private int[] values = new int[16];
+    private int size = 1;
+
+    /**
+     * 添加前缀
+     *
+     * @param digits 纯数字前缀
+     * @param value  前缀对应的值，不小于 0
+     */
+    void add(String digits, int value) {
+        if (digits.isEmpty()) {
+            throw new IllegalArgumentException("前缀不能为空");
+        }
+        int node = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            int digit = digit(digits.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("前缀只能是数字：" + digits);
+            }
+            int child = children[node * RADIX + digit];
+            if (child == 0) {
+                child = newNode();
+                children[node * RADIX + digit] = child;
+            }
+            node = child;
+        }
+        values[node] = value + 1;
+    }
+
+    /**
+     * 从 from 开始沿着 s 查找，返回遇到的第一个前缀的结束位置（不含）
+     *
+     * @param s    字符串
+     * @param from 开始位置
+     * @return 结束位置，没有匹配的前缀返回 -1
+     */
+    int matchEnd(String s, int from) {
+        int node = 0;
+        for (int i = from; i < s.length(); i++) {
+            int digit = digit(s.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            node = children[node * RADIX + digit];
+            if (node == 0) {
+                return -1;
+            }
+            if (values[node] != 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * s 中 [from, to) 这一段前缀对应的值
+     *
+     * @param s    字符串
+     * @param from 开始位置
+     * @param to   结束位置（不含）
+     * @return 值，不是前缀返回 -1
+     */
+    int value(String s, int from, int to) {
+        int node = 0;
+        for (int i = from; i < to; i++) {
+            int digit = digit(s.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            node = children[node * RADIX + digit];
+            if (node == 0) {
+                return -1;
+            }
+        }
+        return values[node] - 1;
+    }
+
+    private int newNode() {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            children = Arrays.copyOf(children, size * 2 * RADIX);
+        }
+        return size++;
+    }
+
+    private static int digit(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : -1;
+    }
+}
@@ -1,17 +1,17 @@
 package com.konosuba.rocketmq.sms.consumer;
 
+import com.konosuba.rocketmq.sms.consumer.binding.SmsBinding;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.stream.annotation.EnableBinding;
-import org.springframework.cloud.stream.messaging.Sink;
 
 /**
  * 启动类
  *
  * @author konosuba
  */
-@SpringBootApplication(scanBasePackages = {"com.konosuba.redis.provider", "com.konosuba.rocketmq.sms.consumer"})
-@EnableBinding(Sink.class)
+@SpringBootApplication(scanBasePackages = {"com.konosuba.redis.provider", "com.konosuba.rocketmq.sms.common", "com.konosuba.rocketmq.sms.consumer"})
+@EnableBinding(SmsBinding.class)
 public class SmsConsumerApplication {
     public static void main(String[] args) {
         SpringApplication.run(SmsConsumerApplication.class, args);
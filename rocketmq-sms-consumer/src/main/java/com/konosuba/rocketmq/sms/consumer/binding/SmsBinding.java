@@ -0,0 +1,63 @@
+package com.konosuba.rocketmq.sms.consumer.binding;
+
+import org.springframework.cloud.stream.annotation.Input;
+import org.springframework.cloud.stream.annotation.Output;
+import org.springframework.cloud.stream.messaging.Sink;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+
+/**
+ * 短信消费者的消息通道
+ *
+ * @author konosuba
+ */
+public interface SmsBinding extends Sink {
+    /**
+     * 重试通道，发送失败的消息延迟后重新投递
+     */
+    String RETRY_OUTPUT = "retryOutput";
+    /**
+     * 死信通道，重试次数用完的消息
+     */
+    String DLQ_OUTPUT = "dlqOutput";
+    /**
+     * 营销短信通道，与验证码使用不同的 topic 和消费线程
+     */
+    String MARKETING_INPUT = "marketingInput";
+    /**
+     * 营销短信的重试通道
+     */
+    String MARKETING_RETRY_OUTPUT = "marketingRetryOutput";
+
+    /**
+     * 营销短信通道
+     *
+     * @return SubscribableChannel
+     */
+    @Input(MARKETING_INPUT)
+    SubscribableChannel marketingInput();
+
+    /**
+     * 重试通道
+     *
+     * @return MessageChannel
+     */
+    @Output(RETRY_OUTPUT)
+    MessageChannel retryOutput();
+
+    /**
+     * 死信通道
+     *
+     * @return MessageChannel
+     */
+    @Output(DLQ_OUTPUT)
+    MessageChannel dlqOutput();
+
+    /**
+     * 营销短信的重试通道
+     *
+     * @return MessageChannel
+     */
+    @Output(MARKETING_RETRY_OUTPUT)
+    MessageChannel marketingRetryOutput();
+}
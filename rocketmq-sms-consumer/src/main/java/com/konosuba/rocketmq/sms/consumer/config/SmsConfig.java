@@ -1,5 +1,6 @@
 package com.konosuba.rocketmq.sms.consumer.config;
 
+import com.konosuba.rocketmq.sms.common.message.SmsType;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -26,4 +27,112 @@ public class SmsConfig implements Serializable {
     private String product;
     @Value("${alisms.domain}")
     private String domain;
-}
\ No newline at end of file
+    @Value("${alisms.regionId:cn-hangzhou}")
+    private String regionId;
+    @Value("${alisms.code.length:6}")
+    private int codeLength;
+    @Value("${alisms.code.alphabet:0123456789}")
+    private String codeAlphabet;
+    @Value("${alisms.code.ttlSeconds:300}")
+    private long codeTtlSeconds;
+
+    // 网关客户端连接池配置
+
+    @Value("${alisms.pool.maxRequests:64}")
+    private int maxRequests;
+    @Value("${alisms.pool.maxRequestsPerHost:64}")
+    private int maxRequestsPerHost;
+    @Value("${alisms.pool.maxIdleConnections:16}")
+    private int maxIdleConnections;
+    @Value("${alisms.pool.keepAliveMillis:300000}")
+    private long keepAliveMillis;
+    @Value("${alisms.pool.connectTimeoutMillis:5000}")
+    private long connectTimeoutMillis;
+    @Value("${alisms.pool.readTimeoutMillis:10000}")
+    private long readTimeoutMillis;
+
+    // 批量发送配置，开启后多条消息合并为一次 SendBatchSms 调用
+
+    @Value("${alisms.batch.enabled:false}")
+    private boolean batchEnabled;
+    @Value("${alisms.batch.maxSize:100}")
+    private int batchMaxSize;
+    @Value("${alisms.batch.lingerMillis:50}")
+    private long batchLingerMillis;
+    @Value("${alisms.batch.dispatchThreads:4}")
+    private int batchDispatchThreads;
+
+    // 异步发送配置，开启后消费线程只负责把消息交给发送线程池
+
+    @Value("${alisms.async.enabled:false}")
+    private boolean asyncEnabled;
+    @Value("${alisms.async.threads:32}")
+    private int asyncThreads;
+    @Value("${alisms.async.maxInFlight:256}")
+    private int asyncMaxInFlight;
+    /**
+     * 各 binding 是否顺序消费，与 binder 的配置保持一致
+     */
+    @Value("${spring.cloud.stream.rocketmq.bindings.input.consumer.orderly:false}")
+    private boolean otpOrderly;
+    @Value("${spring.cloud.stream.rocketmq.bindings.marketingInput.consumer.orderly:false}")
+    private boolean marketingOrderly;
+
+    // 失败重试配置
+
+    @Value("${alisms.retry.maxAttempts:5}")
+    private int retryMaxAttempts;
+    @Value("${alisms.retry.initialDelayLevel:2}")
+    private int retryInitialDelayLevel;
+
+    // 消息去重配置，按生产者生成的消息唯一键记录处理状态
+
+    @Value("${alisms.dedup.enabled:true}")
+    private boolean dedupEnabled;
+    @Value("${alisms.dedup.processingSeconds:600}")
+    private long dedupProcessingSeconds;
+    @Value("${alisms.dedup.doneSeconds:86400}")
+    private long dedupDoneSeconds;
+
+    // 网关 QPS 配置，所有消费者实例通过 redis 租约平分
+
+    @Value("${alisms.qps.enabled:false}")
+    private boolean qpsEnabled;
+    @Value("${alisms.qps.limit:100}")
+    private double qpsLimit;
+    @Value("${alisms.qps.burst:1}")
+    private int qpsBurst;
+    @Value("${alisms.qps.leaseMillis:3000}")
+    private long qpsLeaseMillis;
+    @Value("${alisms.qps.maxWaitMillis:1000}")
+    private long qpsMaxWaitMillis;
+
+    // 短信类型的权重，网关 QPS 和异步发送线程按权重分给验证码和营销短信
+
+    @Value("${alisms.lane.otpWeight:4}")
+    private int laneOtpWeight;
+    @Value("${alisms.lane.marketingWeight:1}")
+    private int laneMarketingWeight;
+
+    /**
+     * 短信类型按权重分到的比例，权重小于 1 时按 1 计算，每种类型都保留一点份额
+     *
+     * @param type 短信类型
+     * @return 0 到 1 之间的比例
+     */
+    public double laneRatio(SmsType type) {
+        int otpWeight = Math.max(1, laneOtpWeight);
+        int marketingWeight = Math.max(1, laneMarketingWeight);
+        return (double) (type == SmsType.MARKETING ? marketingWeight : otpWeight) / (otpWeight + marketingWeight);
+    }
+
+    /**
+     * 短信类型对应的 binding 是否顺序消费
+     *
+     * @param type 短信类型
+     * @return 顺序消费返回 true
+     */
+    public boolean isOrderly(SmsType type) {
+        return type == SmsType.MARKETING ? marketingOrderly : otpOrderly;
+    }
+}
@@ -0,0 +1,28 @@
+package com.konosuba.rocketmq.sms.consumer.config;
+
+import com.konosuba.redis.provider.ratelimit.SlidingWindowRateLimiter;
+import com.konosuba.rocketmq.sms.consumer.ratelimit.SmsRateLimiter;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 发送频率限制配置类
+ *
+ * @author konosuba
+ */
+@Configuration
+@EnableConfigurationProperties(SmsRateLimitProperties.class)
+public class SmsRateLimitConfig {
+    /**
+     * 将 SmsRateLimiter 对象注册到容器中
+     *
+     * @param slidingWindowRateLimiter 滑动窗口限流
+     * @param smsRateLimitProperties   sms.rate-limit 下的规则
+     * @return SmsRateLimiter 对象
+     */
+    @Bean
+    public SmsRateLimiter smsRateLimiter(SlidingWindowRateLimiter slidingWindowRateLimiter, SmsRateLimitProperties smsRateLimitProperties) {
+        return new SmsRateLimiter(slidingWindowRateLimiter, smsRateLimitProperties);
+    }
+}
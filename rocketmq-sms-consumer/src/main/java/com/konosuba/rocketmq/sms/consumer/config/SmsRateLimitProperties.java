@@ -0,0 +1,74 @@
+package com.konosuba.rocketmq.sms.consumer.config;
+
+import com.konosuba.rocketmq.sms.common.message.SmsType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 发送频率限制规则，在调用短信网关之前检查
+ *
+ * @author konosuba
+ */
+@Data
+@ConfigurationProperties(prefix = "sms.rate-limit")
+public class SmsRateLimitProperties {
+    /**
+     * 是否开启，默认关闭，规则在 application-sms.yml 中配置
+     */
+    private boolean enabled = false;
+    /**
+     * 规则，一条短信要满足适用于它的类型的所有规则才会发送
+     */
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    public static class Rule {
+        /**
+         * 规则名，也是 redis key 的一部分，不能重复
+         */
+        private String name;
+        /**
+         * 按什么计数
+         */
+        private Scope scope = Scope.PHONE;
+        /**
+         * 适用的短信类型，为空时适用于所有类型
+         */
+        private Set<SmsType> types = EnumSet.noneOf(SmsType.class);
+        /**
+         * 窗口内最多发送多少条
+         */
+        private long limit;
+        /**
+         * 窗口长度，比如 1s、1h、1d
+         */
+        private Duration window;
+
+        /**
+         * 是否适用于该类型的短信
+         *
+         * @param type 短信类型
+         * @return 没有配置 types 或者 types 包含该类型时为 true
+         */
+        public boolean appliesTo(SmsType type) {
+            return types.isEmpty() || types.contains(type);
+        }
+    }
+
+    public enum Scope {
+        /**
+         * 每个手机号单独计数，超过限制的短信直接丢弃
+         */
+        PHONE,
+        /**
+         * 所有短信一起计数，用于控制在网关的 QPS 配额以内，超过限制的短信稍后重试
+         */
+        GLOBAL
+    }
+}
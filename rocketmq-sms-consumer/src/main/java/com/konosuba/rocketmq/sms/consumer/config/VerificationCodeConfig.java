@@ -0,0 +1,24 @@
+package com.konosuba.rocketmq.sms.consumer.config;
+
+import com.konosuba.rocketmq.sms.consumer.utils.VerificationCodeGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 验证码配置类
+ *
+ * @author konosuba
+ */
+@Configuration
+public class VerificationCodeConfig {
+    /**
+     * 按 alisms.code 的长度和字符生成验证码
+     *
+     * @param smsConfig 短信配置
+     * @return VerificationCodeGenerator 对象
+     */
+    @Bean
+    public VerificationCodeGenerator verificationCodeGenerator(SmsConfig smsConfig) {
+        return new VerificationCodeGenerator(smsConfig.getCodeLength(), smsConfig.getCodeAlphabet());
+    }
+}
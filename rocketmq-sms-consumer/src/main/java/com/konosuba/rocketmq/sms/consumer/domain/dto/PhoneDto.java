@@ -1,5 +1,6 @@
 package com.konosuba.rocketmq.sms.consumer.domain.dto;
 
+import com.konosuba.rocketmq.sms.common.message.SmsType;
 import lombok.Data;
 
 import java.io.Serializable;
@@ -13,4 +14,8 @@ import java.io.Serializable;
 @Data
 public class PhoneDto implements Serializable {
     private String phone;
+    /**
+     * 短信类型，旧消息没有这个字段，按验证码处理
+     */
+    private SmsType type = SmsType.OTP;
 }
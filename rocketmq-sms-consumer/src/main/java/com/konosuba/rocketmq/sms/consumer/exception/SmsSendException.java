@@ -0,0 +1,39 @@
+package com.konosuba.rocketmq.sms.consumer.exception;
+
+/**
+ * 短信网关发送失败
+ *
+ * @author konosuba
+ */
+public class SmsSendException extends Exception {
+    /**
+     * 是否可以稍后重试，网络错误、网关限流等临时错误为 true
+     */
+    private final boolean retryable;
+    /**
+     * 网关返回的错误码，例如 isv.MOBILE_NUMBER_ILLEGAL，不是网关返回的错误时为 null
+     */
+    private final String errorCode;
+
+    public SmsSendException(String message, boolean retryable) {
+        this(null, message, null, retryable);
+    }
+
+    public SmsSendException(String message, Throwable cause, boolean retryable) {
+        this(null, message, cause, retryable);
+    }
+
+    public SmsSendException(String errorCode, String message, Throwable cause, boolean retryable) {
+        super(message, cause);
+        this.retryable = retryable;
+        this.errorCode = errorCode;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+}
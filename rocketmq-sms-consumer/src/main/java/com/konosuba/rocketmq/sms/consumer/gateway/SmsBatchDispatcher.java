@@ -0,0 +1,187 @@
+package com.konosuba.rocketmq.sms.consumer.gateway;
+
+import com.alibaba.fastjson.JSONObject;
+import com.aliyuncs.CommonResponse;
+import com.konosuba.rocketmq.sms.common.message.SmsType;
+import com.konosuba.rocketmq.sms.consumer.config.SmsConfig;
+import com.konosuba.rocketmq.sms.consumer.exception.SmsSendException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 批量发送短信
+ * <p>
+ * 把多个消费线程提交的短信攒成一批，达到 batchMaxSize 条或等待 batchLingerMillis 后，
+ * 通过一次 SendBatchSms 调用发出。每条短信都有自己的 Future，批次的结果会回填到批次内的每一条。
+ * 不同类型的短信分开攒批，验证码不会排在营销短信后面
+ * <p>
+ * 网关会因为一个号码拒绝整批。错误码只和个别号码有关时（号码格式错误、号码被限流、黑名单）把批次对半拆开重发，
+ * 直到找出被拒绝的号码，其余号码照常发送，一个坏号码大约多出 2 * log2(批次大小) 次调用；
+ * 其他错误（模板、签名、余额，以及限流、网络等可以重试的错误）整批失败，由消费者的重试重新投递
+ *
+ * @author konosuba
+ */
+@Component
+public class SmsBatchDispatcher {
+    /**
+     * SendBatchSms 单次最多支持的号码数
+     */
+    private static final int MAX_BATCH_SIZE = 100;
+    /**
+     * 只和个别号码有关的错误码：号码格式错误、号码被限流、号码或内容命中黑名单，只有这些错误才拆开重发
+     */
+    private static final Set<String> PER_NUMBER_ERRORS = new HashSet<>(Arrays.asList(
+            "isv.MOBILE_NUMBER_ILLEGAL",
+            "isv.BUSINESS_LIMIT_CONTROL",
+            "isv.DAY_LIMIT_CONTROL",
+            "isv.BLACK_KEY_CONTROL_LIMIT"));
+
+    @Resource
+    private SmsConfig smsConfig;
+    @Resource
+    private SmsGatewayClient smsGatewayClient;
+
+    private final Map<SmsType, BlockingQueue<PendingSms>> queues = new EnumMap<>(SmsType.class);
+    private final List<Thread> collectors = new ArrayList<>();
+    private volatile boolean running;
+    private ExecutorService dispatchExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (!smsConfig.isBatchEnabled()) {
+            return;
+        }
+        running = true;
+        dispatchExecutor = Executors.newFixedThreadPool(smsConfig.getBatchDispatchThreads(), new CustomizableThreadFactory("sms-batch-dispatch-"));
+        for (SmsType type : SmsType.values()) {
+            BlockingQueue<PendingSms> queue = new LinkedBlockingQueue<>();
+            queues.put(type, queue);
+            Thread collector = new CustomizableThreadFactory("sms-batch-collector-" + type.name().toLowerCase() + "-")
+                    .newThread(() -> collect(type, queue));
+            collector.setDaemon(true);
+            collector.start();
+            collectors.add(collector);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        // 停止接收新短信，把队列里剩余的发完
+        running = false;
+        for (Thread collector : collectors) {
+            collector.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        dispatchExecutor.shutdown();
+        dispatchExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        for (BlockingQueue<PendingSms> queue : queues.values()) {
+            PendingSms pending;
+            while ((pending = queue.poll()) != null) {
+                pending.future.completeExceptionally(new IllegalStateException("批量发送已关闭"));
+            }
+        }
+    }
+
+    /**
+     * 是否开启批量发送
+     *
+     * @return 开启返回 true
+     */
+    public boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * 提交一条短信，等待所在批次发送完成
+     *
+     * @param type          短信类型
+     * @param phone         收信人手机号
+     * @param templateParam 模板参数
+     * @return 所在批次的网关响应
+     */
+    public CompletableFuture<CommonResponse> submit(SmsType type, String phone, JSONObject templateParam) {
+        PendingSms pending = new PendingSms(phone, templateParam);
+        if (!running) {
+            pending.future.completeExceptionally(new IllegalStateException("批量发送未开启"));
+            return pending.future;
+        }
+        queues.get(type).add(pending);
+        return pending.future;
+    }
+
+    private void collect(SmsType type, BlockingQueue<PendingSms> queue) {
+        int maxSize = Math.min(smsConfig.getBatchMaxSize(), MAX_BATCH_SIZE);
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(smsConfig.getBatchLingerMillis());
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingSms first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<PendingSms> batch = new ArrayList<>(maxSize);
+                batch.add(first);
+                // 从第一条开始计时，攒满或超时就发出
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingSms next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                dispatchExecutor.execute(() -> dispatch(type, batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void dispatch(SmsType type, List<PendingSms> batch) {
+        List<String> phones = new ArrayList<>(batch.size());
+        List<JSONObject> templateParams = new ArrayList<>(batch.size());
+        for (PendingSms pending : batch) {
+            phones.add(pending.phone);
+            templateParams.add(pending.templateParam);
+        }
+        try {
+            CommonResponse response = smsGatewayClient.sendBatchSms(type, phones, templateParams);
+            batch.forEach(pending -> pending.future.complete(response));
+        } catch (SmsSendException e) {
+            // 只剩一个号码时的拒绝就是这个号码自己的结果；模板、签名、余额等整批的错误拆开也都会失败，直接整批失败
+            if (batch.size() == 1 || !PER_NUMBER_ERRORS.contains(e.getErrorCode())) {
+                batch.forEach(pending -> pending.future.completeExceptionally(e));
+                return;
+            }
+            // 对半拆开重发，被拒绝的号码在其中一半里
+            int middle = batch.size() / 2;
+            dispatch(type, batch.subList(0, middle));
+            dispatch(type, batch.subList(middle, batch.size()));
+        } catch (Exception e) {
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * 等待批量发送的短信
+     */
+    private static class PendingSms {
+        private final String phone;
+        private final JSONObject templateParam;
+        private final CompletableFuture<CommonResponse> future = new CompletableFuture<>();
+
+        private PendingSms(String phone, JSONObject templateParam) {
+            this.phone = phone;
+            this.templateParam = templateParam;
+        }
+    }
+}
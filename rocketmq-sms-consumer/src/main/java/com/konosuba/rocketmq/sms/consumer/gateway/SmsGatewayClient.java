@@ -0,0 +1,215 @@
+package com.konosuba.rocketmq.sms.consumer.gateway;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.aliyuncs.CommonRequest;
+import com.aliyuncs.CommonResponse;
+import com.aliyuncs.DefaultAcsClient;
+import com.aliyuncs.IAcsClient;
+import com.aliyuncs.exceptions.ClientException;
+import com.aliyuncs.exceptions.ServerException;
+import com.aliyuncs.http.HttpClientConfig;
+import com.aliyuncs.http.MethodType;
+import com.aliyuncs.profile.DefaultProfile;
+import com.konosuba.rocketmq.sms.common.message.SmsType;
+import com.konosuba.rocketmq.sms.common.trace.Span;
+import com.konosuba.rocketmq.sms.common.trace.Tracer;
+import com.konosuba.rocketmq.sms.consumer.config.SmsConfig;
+import com.konosuba.rocketmq.sms.consumer.exception.SmsSendException;
+import com.konosuba.rocketmq.sms.consumer.metrics.SmsMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 阿里云短信网关客户端
+ * <p>
+ * 启动时根据 SmsConfig 创建一个带连接池的 IAcsClient，所有消息共享该客户端，
+ * 避免每条消息都重新建立 HTTP 连接和 TLS 握手
+ *
+ * @author konosuba
+ */
+@Component
+public class SmsGatewayClient implements MeterBinder {
+    /**
+     * 短信 API 版本号，看着阿里的文档改
+     */
+    private static final String API_VERSION = "2017-05-25";
+    /**
+     * 发送成功时返回的 Code
+     */
+    private static final String RESPONSE_OK = "OK";
+
+    @Resource
+    private SmsConfig smsConfig;
+    @Resource
+    private SmsQpsGovernor smsQpsGovernor;
+    @Resource
+    private SmsMetrics smsMetrics;
+    @Resource
+    private Tracer tracer;
+
+    private IAcsClient client;
+    /**
+     * 创建的客户端数量，正常情况下整个进程只有一个
+     */
+    private final AtomicLong clientsCreated = new AtomicLong();
+    /**
+     * 复用已有客户端发出的请求数量
+     */
+    private final AtomicLong clientsReused = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        HttpClientConfig httpClientConfig = HttpClientConfig.getDefault();
+        httpClientConfig.setMaxRequests(smsConfig.getMaxRequests());
+        httpClientConfig.setMaxRequestsPerHost(smsConfig.getMaxRequestsPerHost());
+        httpClientConfig.setMaxIdleConnections(smsConfig.getMaxIdleConnections());
+        httpClientConfig.setKeepAliveDurationMillis(smsConfig.getKeepAliveMillis());
+        httpClientConfig.setConnectionTimeoutMillis(smsConfig.getConnectTimeoutMillis());
+        httpClientConfig.setReadTimeoutMillis(smsConfig.getReadTimeoutMillis());
+
+        DefaultProfile profile = DefaultProfile.getProfile(smsConfig.getRegionId(), smsConfig.getAccessKeyId(), smsConfig.getAccessKeySecret());
+        profile.setHttpClientConfig(httpClientConfig);
+        client = new DefaultAcsClient(profile);
+        clientsCreated.incrementAndGet();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        client.shutdown();
+    }
+
+    /**
+     * 发送单条短信
+     *
+     * @param type          短信类型，按类型的份额取网关 QPS
+     * @param phone         收信人手机号
+     * @param templateParam 模板参数，JSON 格式
+     * @return 网关响应
+     * @throws SmsSendException 网关调用失败
+     */
+    public CommonResponse sendSms(SmsType type, String phone, String templateParam) throws SmsSendException {
+        CommonRequest request = newRequest("SendSms");
+        // 收信人手机号
+        request.putQueryParameter("PhoneNumbers", phone);
+        // 签名
+        request.putQueryParameter("SignName", smsConfig.getSignName());
+        // 短信模板
+        request.putQueryParameter("TemplateCode", smsConfig.getTemplateCode());
+        // 验证码，要将 JSON 格式
+        request.putQueryParameter("TemplateParam", templateParam);
+        return execute(type, request);
+    }
+
+    /**
+     * 批量发送短信，一次最多 100 个号码
+     *
+     * @param type           短信类型，按类型的份额取网关 QPS
+     * @param phones         收信人手机号
+     * @param templateParams 与手机号一一对应的模板参数
+     * @return 网关响应
+     * @throws SmsSendException 网关调用失败
+     */
+    public CommonResponse sendBatchSms(SmsType type, List<String> phones, List<JSONObject> templateParams) throws SmsSendException {
+        CommonRequest request = newRequest("SendBatchSms");
+        List<String> signNames = Collections.nCopies(phones.size(), smsConfig.getSignName());
+        // 收信人手机号，JSON 数组
+        request.putQueryParameter("PhoneNumberJson", JSON.toJSONString(phones));
+        // 签名，与手机号一一对应
+        request.putQueryParameter("SignNameJson", JSON.toJSONString(signNames));
+        // 短信模板
+        request.putQueryParameter("TemplateCode", smsConfig.getTemplateCode());
+        // 验证码，与手机号一一对应
+        request.putQueryParameter("TemplateParamJson", JSON.toJSONString(templateParams));
+        return execute(type, request);
+    }
+
+    private CommonRequest newRequest(String action) {
+        // 组装请求对象
+        CommonRequest request = new CommonRequest();
+        // 发送短信的请求方式
+        request.setSysMethod(MethodType.POST);
+        // 短信API产品名称
+        request.setSysDomain(smsConfig.getDomain());
+        // 短信API产品域名
+        request.setSysProduct(smsConfig.getProduct());
+        request.setSysVersion(API_VERSION);
+        request.setSysAction(action);
+        // 地域ID
+        request.setSysRegionId(smsConfig.getRegionId());
+        return request;
+    }
+
+    private CommonResponse execute(SmsType type, CommonRequest request) throws SmsSendException {
+        // 按本实例的 QPS 份额调用网关，不让网关限流
+        smsQpsGovernor.acquire(type);
+        clientsReused.incrementAndGet();
+        // 批量发送由合并线程调用，没有所属的消费链路，不记录 span
+        Span span = tracer.isRecording() ? tracer.childSpan("sms.gateway." + request.getSysAction()) : Span.NOOP;
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            return call(request);
+        } catch (SmsSendException e) {
+            outcome = e.isRetryable() ? "retryable" : "rejected";
+            span.error(e);
+            throw e;
+        } catch (RuntimeException e) {
+            outcome = "error";
+            span.error(e);
+            throw e;
+        } finally {
+            smsMetrics.recordGateway(request.getSysAction(), type, outcome, System.nanoTime() - start);
+            span.tag("type", type.name()).tag("outcome", outcome).finish();
+        }
+    }
+
+    private CommonResponse call(CommonRequest request) throws SmsSendException {
+        CommonResponse response;
+        try {
+            response = client.getCommonResponse(request);
+        } catch (ServerException e) {
+            // 网关服务端错误，稍后重试
+            throw new SmsSendException(e.getErrCode(), e.getErrCode() + ": " + e.getErrMsg(), e, true);
+        } catch (ClientException e) {
+            throw new SmsSendException(e.getErrCode(), e.getErrCode() + ": " + e.getErrMsg(), e, isRetryable(e.getErrCode()));
+        }
+        // 请求成功也要看返回的 Code，例如 {"Code":"isv.MOBILE_NUMBER_ILLEGAL","Message":"..."}
+        JSONObject data = JSON.parseObject(response.getData());
+        String code = data == null ? null : data.getString("Code");
+        if (!RESPONSE_OK.equals(code)) {
+            throw new SmsSendException(code, code + ": " + (data == null ? response.getData() : data.getString("Message")), null, isRetryable(code));
+        }
+        return response;
+    }
+
+    /**
+     * 网络错误（SDK.）、网关内部错误（isp.）和限流（Throttling）稍后重试可能成功，
+     * 其余错误（如 isv. 开头的业务错误）重试也不会成功
+     *
+     * @param errCode 错误码
+     * @return 可以重试返回 true
+     */
+    private static boolean isRetryable(String errCode) {
+        return errCode != null && (errCode.startsWith("SDK.") || errCode.startsWith("isp.") || errCode.startsWith("Throttling"));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sms.gateway.client.created", clientsCreated, AtomicLong::get)
+                .description("短信网关客户端创建次数")
+                .register(registry);
+        FunctionCounter.builder("sms.gateway.client.reused", clientsReused, AtomicLong::get)
+                .description("复用共享短信网关客户端发出的请求数")
+                .register(registry);
+    }
+}
@@ -0,0 +1,138 @@
+package com.konosuba.rocketmq.sms.consumer.gateway;
+
+import com.konosuba.redis.provider.ratelimit.QpsLease;
+import com.konosuba.redis.provider.ratelimit.TokenBucket;
+import com.konosuba.redis.provider.service.RedisService;
+import com.konosuba.rocketmq.sms.common.message.SmsType;
+import com.konosuba.rocketmq.sms.common.redis.SmsRedisKeys;
+import com.konosuba.rocketmq.sms.consumer.config.SmsConfig;
+import com.konosuba.rocketmq.sms.consumer.exception.SmsSendException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 控制调用短信网关的速率
+ * <p>
+ * 所有消费者实例通过 redis 租约平分 alisms.qps.limit，每个实例按自己的份额在本地令牌桶中取令牌，
+ * 每次调用网关不需要访问 redis。limit 应该略低于阿里云账号的 QPS 配额，给实例数变化时的调整留出余量
+ * <p>
+ * 本实例的份额再按 alisms.lane 的权重分给每种短信类型，各自一个令牌桶。自己的令牌用完时，
+ * 可以不等待地借用其他类型当前空闲的令牌，验证码少的时候营销短信能用满份额；
+ * 验证码到来时最多等一个发放间隔就能拿回自己的令牌
+ *
+ * @author konosuba
+ */
+@Component
+public class SmsQpsGovernor implements MeterBinder {
+
+    @Resource
+    private SmsConfig smsConfig;
+    @Resource
+    private RedisService redisService;
+
+    private QpsLease lease;
+    private final Map<SmsType, TokenBucket> laneBuckets = new EnumMap<>(SmsType.class);
+    /**
+     * 分配给各类型的份额，与租约的份额不同时重新分配
+     */
+    private volatile double laneShare;
+
+    @PostConstruct
+    public void init() {
+        if (!smsConfig.isQpsEnabled()) {
+            return;
+        }
+        String instanceId = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID();
+        lease = new QpsLease(redisService, SmsRedisKeys.gatewayLease(), instanceId,
+                smsConfig.getQpsLimit(), smsConfig.getQpsLeaseMillis(), smsConfig.getQpsBurst());
+        lease.start();
+        laneShare = lease.getShare();
+        for (SmsType type : SmsType.values()) {
+            laneBuckets.put(type, new TokenBucket(laneShare * smsConfig.laneRatio(type), smsConfig.getQpsBurst()));
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (lease != null) {
+            lease.stop();
+        }
+    }
+
+    /**
+     * 调用网关之前获取一个令牌，需要时等待
+     *
+     * @param type 短信类型
+     * @throws SmsSendException 等待时间超过 alisms.qps.maxWaitMillis，稍后重试
+     */
+    public void acquire(SmsType type) throws SmsSendException {
+        if (lease == null) {
+            return;
+        }
+        rebalance();
+        TokenBucket own = laneBuckets.get(type);
+        if (own.reserve(0) == 0 || borrow(type)) {
+            return;
+        }
+        try {
+            if (!own.acquire(smsConfig.getQpsMaxWaitMillis(), TimeUnit.MILLISECONDS)) {
+                throw new SmsSendException("超过本实例 " + type + " 短信的网关 QPS 份额 " + own.getRate(), true);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SmsSendException("等待网关 QPS 令牌时被中断", e, true);
+        }
+    }
+
+    /**
+     * 借用其他类型当前空闲的令牌，不等待，借到的令牌计入对方的速率，总速率不超过本实例的份额
+     */
+    private boolean borrow(SmsType type) {
+        for (Map.Entry<SmsType, TokenBucket> entry : laneBuckets.entrySet()) {
+            if (entry.getKey() != type && entry.getValue().reserve(0) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 实例数变化后租约的份额跟着变，各类型的份额按权重重新分配
+     */
+    private void rebalance() {
+        double share = lease.getShare();
+        if (share == laneShare) {
+            return;
+        }
+        laneShare = share;
+        laneBuckets.forEach((type, bucket) -> bucket.setRate(share * smsConfig.laneRatio(type)));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (lease == null) {
+            return;
+        }
+        Gauge.builder("sms.gateway.qps.share", lease, QpsLease::getShare)
+                .description("本实例分到的网关 QPS")
+                .register(registry);
+        Gauge.builder("sms.gateway.qps.instances", lease, QpsLease::getInstances)
+                .description("平分网关 QPS 的实例数")
+                .register(registry);
+        laneBuckets.forEach((type, bucket) -> Gauge.builder("sms.gateway.qps.lane", bucket, TokenBucket::getRate)
+                .tag("type", type.name())
+                .description("本实例分给该类型短信的网关 QPS")
+                .register(registry));
+    }
+}
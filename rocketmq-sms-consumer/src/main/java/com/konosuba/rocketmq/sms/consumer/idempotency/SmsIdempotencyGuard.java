@@ -0,0 +1,97 @@
+package com.konosuba.rocketmq.sms.consumer.idempotency;
+
+import com.konosuba.redis.provider.service.RedisService;
+import com.konosuba.rocketmq.sms.common.redis.SmsRedisKeys;
+import com.konosuba.rocketmq.sms.consumer.config.SmsConfig;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按消息唯一键去重
+ * <p>
+ * RocketMQ 至少投递一次，重平衡、消费者重启都可能重复投递。处理前用 SETNX 占用消息键（处理中），
+ * 发送成功后标记为已完成并保留 doneSeconds，期间重复投递的消息不再调用网关；发送失败时删除，重试的消息可以再次处理
+ *
+ * @author konosuba
+ */
+@Component
+public class SmsIdempotencyGuard {
+    private static final String PROCESSING = "processing";
+    private static final String DONE = "done";
+
+    @Resource
+    private RedisService redisService;
+    @Resource
+    private SmsConfig smsConfig;
+
+    public enum Claim {
+        /**
+         * 占用成功，可以处理
+         */
+        ACQUIRED,
+        /**
+         * 其他消费者正在处理
+         */
+        PROCESSING,
+        /**
+         * 已经处理完成
+         */
+        DONE
+    }
+
+    /**
+     * 是否开启去重
+     *
+     * @return 开启返回 true
+     */
+    public boolean isEnabled() {
+        return smsConfig.isDedupEnabled();
+    }
+
+    /**
+     * 占用消息，SETNX 和读取已有状态在一个管道中完成，一次网络往返
+     * <p>
+     * 管道发往主节点：GET 要读到 SETNX 刚比较过的值，配置了读从节点时从节点可能还没有复制到已完成的状态，
+     * 把处理完的消息当成处理中
+     * <p>
+     * 没有批量的 claimAll：binder 每次只把一条消息交给 @StreamListener，占用在收到消息时就要完成，
+     * 结果决定这条消息是跳过、重新投递还是发送；批量发送的批次在 SmsBatchDispatcher 中占用之后才凑成，
+     * 那时消息已经交给了发送线程，不能再按占用结果拒绝。每条消息仍然只有一次往返
+     *
+     * @param messageKey 消息的唯一键
+     * @return 占用结果
+     */
+    public Claim claim(String messageKey) {
+        String key = SmsRedisKeys.message(messageKey);
+        List<Object> results = redisService.master().pipeline(pipeline -> {
+            pipeline.setIfAbsent(key, PROCESSING, smsConfig.getDedupProcessingSeconds(), TimeUnit.SECONDS);
+            // 占用失败时看已有的状态
+            pipeline.get(key);
+        });
+        if (Boolean.TRUE.equals(results.get(0))) {
+            return Claim.ACQUIRED;
+        }
+        return DONE.equals(results.get(1)) ? Claim.DONE : Claim.PROCESSING;
+    }
+
+    /**
+     * 处理完成，之后重复投递的消息直接跳过
+     *
+     * @param messageKey 消息的唯一键
+     */
+    public void complete(String messageKey) {
+        redisService.set(SmsRedisKeys.message(messageKey), DONE, smsConfig.getDedupDoneSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * 处理失败，释放占用，重试的消息可以再次处理
+     *
+     * @param messageKey 消息的唯一键
+     */
+    public void release(String messageKey) {
+        redisService.delete(SmsRedisKeys.message(messageKey));
+    }
+}
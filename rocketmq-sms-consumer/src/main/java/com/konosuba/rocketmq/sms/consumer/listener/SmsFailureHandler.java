@@ -0,0 +1,107 @@
+package com.konosuba.rocketmq.sms.consumer.listener;
+
+import com.konosuba.rocketmq.sms.common.message.SmsMessageHeaders;
+import com.konosuba.rocketmq.sms.common.message.SmsType;
+import com.konosuba.rocketmq.sms.consumer.binding.SmsBinding;
+import com.konosuba.rocketmq.sms.consumer.config.SmsConfig;
+import com.konosuba.rocketmq.sms.consumer.domain.dto.PhoneDto;
+import com.konosuba.rocketmq.sms.consumer.exception.SmsSendException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.rocketmq.common.message.MessageConst;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 处理发送失败的短信
+ * <p>
+ * 临时错误通过 RocketMQ 延迟消息重新投递，不占用消费线程等待；
+ * 重试次数用完或者网关明确拒绝的消息进入死信 topic
+ *
+ * @author konosuba
+ */
+@Slf4j
+@Component
+public class SmsFailureHandler {
+    /**
+     * 已经尝试发送的次数
+     */
+    public static final String ATTEMPT_HEADER = "smsAttempt";
+    /**
+     * 进入死信的原因
+     */
+    public static final String ERROR_HEADER = "smsError";
+    /**
+     * RocketMQ 默认的最大延迟级别（2h）
+     */
+    private static final int MAX_DELAY_LEVEL = 18;
+    /**
+     * 重试和死信消息沿用的消息头：唯一键用于去重，收到请求的时间用于统计包含重试的端到端耗时，
+     * traceparent 让重试的消费和第一次消费在同一条链路中
+     */
+    private static final List<String> PROPAGATED_HEADERS = Arrays.asList(SmsMessageHeaders.MESSAGE_KEY,
+            SmsMessageHeaders.ACCEPTED_AT, SmsMessageHeaders.TRACEPARENT);
+
+    @Resource
+    private SmsConfig smsConfig;
+    @Resource
+    private SmsBinding smsBinding;
+
+    /**
+     * 处理发送失败的短信
+     *
+     * @param phoneDto JavaBean
+     * @param headers  收到的消息头，已经尝试的次数从 smsAttempt 中读取，PROPAGATED_HEADERS 沿用到重试和死信消息
+     * @param e        失败原因
+     */
+    public void onFailure(PhoneDto phoneDto, MessageHeaders headers, Throwable e) {
+        String attempt = headers.get(ATTEMPT_HEADER, String.class);
+        int attempts = attempt == null ? 0 : Integer.parseInt(attempt);
+        if (!(e instanceof SmsSendException)) {
+            // 手机号错误、发送频繁等校验失败，重试也没有意义
+            log.warn("短信未发送，phone={}，原因：{}", phoneDto.getPhone(), e.getMessage());
+            return;
+        }
+        int attempted = attempts + 1;
+        if (((SmsSendException) e).isRetryable() && attempted < smsConfig.getRetryMaxAttempts()) {
+            // 延迟级别随次数递增：默认从 5s 开始，依次为 10s、30s、1m、2m ...
+            int delayLevel = Math.min(smsConfig.getRetryInitialDelayLevel() + attempts, MAX_DELAY_LEVEL);
+            log.warn("短信发送失败，稍后重试，phone={}，第{}次，延迟级别{}，原因：{}", phoneDto.getPhone(), attempted, delayLevel, e.getMessage());
+            // 重试的消息回到原来的 topic
+            MessageChannel retryOutput = phoneDto.getType() == SmsType.MARKETING ? smsBinding.marketingRetryOutput() : smsBinding.retryOutput();
+            retryOutput.send(MessageBuilder.withPayload(phoneDto)
+                    .copyHeaders(propagated(headers))
+                    .setHeader(ATTEMPT_HEADER, String.valueOf(attempted))
+                    .setHeader(MessageConst.PROPERTY_DELAY_TIME_LEVEL, delayLevel)
+                    // 重试的消息仍然进入该号码所在的队列
+                    .setHeader(SmsMessageHeaders.SHARDING_KEY, phoneDto.getPhone())
+                    .setHeader(SmsMessageHeaders.PUBLISHED_AT, String.valueOf(System.currentTimeMillis()))
+                    .build());
+            return;
+        }
+        log.error("短信发送失败，进入死信，phone={}，共{}次，原因：{}", phoneDto.getPhone(), attempted, e.getMessage());
+        smsBinding.dlqOutput().send(MessageBuilder.withPayload(phoneDto)
+                .copyHeaders(propagated(headers))
+                .setHeader(ATTEMPT_HEADER, String.valueOf(attempted))
+                .setHeader(ERROR_HEADER, e.getMessage())
+                .build());
+    }
+
+    private static Map<String, Object> propagated(MessageHeaders headers) {
+        Map<String, Object> propagated = new HashMap<>(PROPAGATED_HEADERS.size());
+        for (String name : PROPAGATED_HEADERS) {
+            Object value = headers.get(name);
+            if (value != null) {
+                propagated.put(name, value);
+            }
+        }
+        return propagated;
+    }
+}
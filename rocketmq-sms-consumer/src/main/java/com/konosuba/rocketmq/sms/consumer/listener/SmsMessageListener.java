@@ -0,0 +1,168 @@
+package com.konosuba.rocketmq.sms.consumer.listener;
+
+import com.konosuba.rocketmq.sms.common.message.SmsMessageHeaders;
+import com.konosuba.rocketmq.sms.common.message.SmsType;
+import com.konosuba.rocketmq.sms.common.trace.Span;
+import com.konosuba.rocketmq.sms.common.trace.Tracer;
+import com.konosuba.rocketmq.sms.consumer.binding.SmsBinding;
+import com.konosuba.rocketmq.sms.consumer.domain.dto.PhoneDto;
+import com.konosuba.rocketmq.sms.consumer.idempotency.SmsIdempotencyGuard;
+import com.konosuba.rocketmq.sms.consumer.metrics.SmsMetrics;
+import com.konosuba.rocketmq.sms.consumer.pipeline.SmsSendPipeline;
+import com.konosuba.rocketmq.sms.consumer.service.SmsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.stream.annotation.StreamListener;
+import org.springframework.cloud.stream.messaging.Sink;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 监听短信消息
+ *
+ * @author konosuba
+ */
+@Slf4j
+@Component
+public class SmsMessageListener {
+
+    @Resource
+    private SmsService smsService;
+    @Resource
+    private SmsSendPipeline smsSendPipeline;
+    @Resource
+    private SmsFailureHandler smsFailureHandler;
+    @Resource
+    private SmsIdempotencyGuard smsIdempotencyGuard;
+    @Resource
+    private SmsMetrics smsMetrics;
+    @Resource
+    private Tracer tracer;
+
+    @StreamListener(Sink.INPUT)
+    public void onMessage(@Payload PhoneDto phoneDto, MessageHeaders headers) throws InterruptedException {
+        phoneDto.setType(SmsType.OTP);
+        handle(phoneDto, headers);
+    }
+
+    /**
+     * 营销短信，binder 为它单独创建消费者和消费线程，积压时不占用验证码的线程
+     */
+    @StreamListener(SmsBinding.MARKETING_INPUT)
+    public void onMarketingMessage(@Payload PhoneDto phoneDto, MessageHeaders headers) throws InterruptedException {
+        phoneDto.setType(SmsType.MARKETING);
+        handle(phoneDto, headers);
+    }
+
+    /**
+     * 短信类型以收到消息的通道为准，后面的发送线程和网关 QPS 按类型区分
+     * <p>
+     * 消费的 span 接上生产者放在消息头中的链路，redis 和网关的调用是它的子 span；异步发送时在发送完成后结束
+     */
+    private void handle(PhoneDto phoneDto, MessageHeaders headers) throws InterruptedException {
+        boolean retry = headers.containsKey(SmsFailureHandler.ATTEMPT_HEADER);
+        smsMetrics.recordDwell(phoneDto.getType(), headers.get(SmsMessageHeaders.PUBLISHED_AT, String.class), retry);
+        Span span = tracer.joinSpan("sms.consume", headers.get(SmsMessageHeaders.TRACEPARENT, String.class))
+                .tag("type", phoneDto.getType().name())
+                .tag("retry", String.valueOf(retry));
+        boolean submitted = false;
+        try (Tracer.Scope ignored = tracer.withSpan(span)) {
+            submitted = process(phoneDto, headers, span);
+        } catch (InterruptedException | RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            if (!submitted) {
+                span.finish();
+            }
+        }
+    }
+
+    /**
+     * @return 交给了异步发送线程池时返回 true，span 由发送线程结束
+     */
+    private boolean process(PhoneDto phoneDto, MessageHeaders headers, Span span) throws InterruptedException {
+        // 没有唯一键的消息（旧版本生产者发出的）不去重
+        String dedupKey = smsIdempotencyGuard.isEnabled() ? headers.get(SmsMessageHeaders.MESSAGE_KEY, String.class) : null;
+        if (dedupKey != null) {
+            SmsIdempotencyGuard.Claim claim = smsIdempotencyGuard.claim(dedupKey);
+            if (claim == SmsIdempotencyGuard.Claim.DONE) {
+                log.info("重复的消息，已经发送过，跳过，phone={}，messageKey={}", phoneDto.getPhone(), dedupKey);
+                span.tag("duplicate", "true");
+                return false;
+            }
+            if (claim == SmsIdempotencyGuard.Claim.PROCESSING) {
+                // 另一个消费者正在处理，抛出异常让 RocketMQ 稍后重新投递，那时再看是否发送成功
+                throw new IllegalStateException("消息正在处理中，messageKey=" + dedupKey);
+            }
+        }
+        if (!smsSendPipeline.isEnabled(phoneDto.getType())) {
+            try {
+                smsService.smsSend(phoneDto);
+            } catch (Exception e) {
+                span.error(e);
+                release(dedupKey);
+                smsFailureHandler.onFailure(phoneDto, headers, e);
+                return false;
+            }
+            complete(phoneDto, headers, dedupKey);
+            return false;
+        }
+        // 异步模式下交给发送线程池，名额用完时在这里阻塞
+        try {
+            smsSendPipeline.submit(phoneDto).whenComplete((result, e) -> {
+                // 消息在交给线程池时已经确认，这里的异常没有人接，不记下来消息就悄悄丢了
+                try {
+                    if (e != null) {
+                        span.error(e);
+                        release(dedupKey);
+                        smsFailureHandler.onFailure(phoneDto, headers, e);
+                    } else {
+                        complete(phoneDto, headers, dedupKey);
+                    }
+                } catch (RuntimeException callbackError) {
+                    span.error(callbackError);
+                    log.error("异步发送完成后处理失败，消息可能丢失，phone={}，messageKey={}",
+                            phoneDto.getPhone(), headers.get(SmsMessageHeaders.MESSAGE_KEY, String.class), callbackError);
+                } finally {
+                    span.finish();
+                }
+            });
+        } catch (InterruptedException e) {
+            release(dedupKey);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * 发送成功，标记失败不影响已经发出的短信，最多在重复投递时多发一次
+     */
+    private void complete(PhoneDto phoneDto, MessageHeaders headers, String dedupKey) {
+        smsMetrics.recordDelivery(phoneDto.getType(), headers.get(SmsMessageHeaders.ACCEPTED_AT, String.class));
+        if (dedupKey == null) {
+            return;
+        }
+        try {
+            smsIdempotencyGuard.complete(dedupKey);
+        } catch (Exception e) {
+            log.warn("标记消息已处理失败，messageKey={}，原因：{}", dedupKey, e.getMessage());
+        }
+    }
+
+    /**
+     * 删除失败时占用在 processingSeconds 后过期，重新投递的消息那时再处理
+     */
+    private void release(String dedupKey) {
+        if (dedupKey == null) {
+            return;
+        }
+        try {
+            smsIdempotencyGuard.release(dedupKey);
+        } catch (Exception e) {
+            log.warn("释放消息占用失败，messageKey={}，原因：{}", dedupKey, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.konosuba.rocketmq.sms.consumer.metrics;
+
+import com.konosuba.rocketmq.sms.common.message.SmsType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消费者的耗时指标
+ * <ul>
+ *     <li>sms.broker.dwell：消息交给 RocketMQ 到开始消费，重试的消息包含延迟级别的等待</li>
+ *     <li>sms.gateway.request：一次网关调用，不含等待 QPS 令牌的时间</li>
+ *     <li>sms.delivery：生产者收到请求到网关确认发送成功，包含所有重试</li>
+ * </ul>
+ * 跨进程的耗时按两台机器的时钟计算，时钟偏差会直接体现在结果里，小于 0 的按 0 记录
+ *
+ * @author konosuba
+ */
+@Component
+public class SmsMetrics {
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 记录消息在 broker 中停留的时间
+     *
+     * @param type        短信类型
+     * @param publishedAt 消息头 smsPublishedAt，旧消息没有时不记录
+     * @param retry       是否是重试的消息
+     */
+    public void recordDwell(SmsType type, String publishedAt, boolean retry) {
+        record(timer("sms.broker.dwell", "消息在 broker 中停留的时间", Duration.ofMinutes(10))
+                .tag("type", type.name())
+                .tag("retry", String.valueOf(retry)), publishedAt);
+    }
+
+    /**
+     * 记录端到端耗时，网关确认发送成功时调用
+     *
+     * @param type       短信类型
+     * @param acceptedAt 消息头 smsAcceptedAt，旧消息没有时不记录
+     */
+    public void recordDelivery(SmsType type, String acceptedAt) {
+        record(timer("sms.delivery", "从生产者收到请求到短信发送成功的时间", Duration.ofHours(1))
+                .tag("type", type.name()), acceptedAt);
+    }
+
+    /**
+     * 记录一次网关调用
+     *
+     * @param action       SendSms 或 SendBatchSms
+     * @param type         短信类型
+     * @param outcome      success、retryable、rejected 或 error
+     * @param elapsedNanos 耗时
+     */
+    public void recordGateway(String action, SmsType type, String outcome, long elapsedNanos) {
+        timer("sms.gateway.request", "短信网关调用耗时", Duration.ofSeconds(30))
+                .tag("action", action)
+                .tag("type", type.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void record(Timer.Builder builder, String since) {
+        if (since == null) {
+            return;
+        }
+        long start;
+        try {
+            start = Long.parseLong(since);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        builder.register(meterRegistry).record(Math.max(0, System.currentTimeMillis() - start), TimeUnit.MILLISECONDS);
+    }
+
+    private static Timer.Builder timer(String name, String description, Duration max) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(max);
+    }
+}
@@ -0,0 +1,140 @@
+package com.konosuba.rocketmq.sms.consumer.pipeline;
+
+import com.konosuba.rocketmq.sms.common.message.SmsType;
+import com.konosuba.rocketmq.sms.common.trace.Tracer;
+import com.konosuba.rocketmq.sms.consumer.config.SmsConfig;
+import com.konosuba.rocketmq.sms.consumer.domain.dto.PhoneDto;
+import com.konosuba.rocketmq.sms.consumer.service.SmsService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * 异步发送短信
+ * <p>
+ * 消费线程把消息交给独立的发送线程池，网关调用不再占用 RocketMQ 的消费线程。
+ * 正在发送的消息数不超过 asyncMaxInFlight，达到上限时消费线程阻塞在 submit 上，
+ * RocketMQ 随之停止投递新消息，形成背压
+ * <p>
+ * 每种短信类型有自己的线程池和名额，按 alisms.lane 的权重分配，营销短信占满名额时验证码不受影响
+ *
+ * @author konosuba
+ */
+@Component
+public class SmsSendPipeline implements MeterBinder {
+
+    @Resource
+    private SmsConfig smsConfig;
+    @Resource
+    private SmsService smsService;
+    @Resource
+    private Tracer tracer;
+
+    private final Map<SmsType, Lane> lanes = new EnumMap<>(SmsType.class);
+
+    @PostConstruct
+    public void init() {
+        if (!smsConfig.isAsyncEnabled()) {
+            return;
+        }
+        for (SmsType type : SmsType.values()) {
+            // 顺序消费时消费线程要等到发送完成才能处理同一队列的下一条消息，这种类型不能交给线程池
+            if (smsConfig.isOrderly(type)) {
+                continue;
+            }
+            double ratio = smsConfig.laneRatio(type);
+            int threads = Math.max(1, (int) (smsConfig.getAsyncThreads() * ratio));
+            int maxInFlight = Math.max(1, (int) (smsConfig.getAsyncMaxInFlight() * ratio));
+            lanes.put(type, new Lane(type, threads, maxInFlight));
+        }
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        // 等待已经交出去的消息发送完成
+        for (Lane lane : lanes.values()) {
+            lane.executor.shutdown();
+        }
+        for (Lane lane : lanes.values()) {
+            lane.executor.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 短信类型是否异步发送，对应的 binding 顺序消费时不异步发送
+     *
+     * @param type 短信类型
+     * @return 异步发送返回 true
+     */
+    public boolean isEnabled(SmsType type) {
+        return lanes.containsKey(type);
+    }
+
+    /**
+     * 提交一条短信，该类型正在发送的消息达到上限时阻塞调用线程
+     *
+     * @param phoneDto JavaBean
+     * @return 发送完成的 Future
+     * @throws InterruptedException 等待名额时被中断
+     */
+    public CompletableFuture<Void> submit(PhoneDto phoneDto) throws InterruptedException {
+        Lane lane = lanes.get(phoneDto.getType());
+        lane.inFlight.acquire();
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            // 发送线程沿用消费线程的链路，网关和 redis 的 span 仍然挂在消费的 span 下
+            lane.executor.execute(tracer.wrap(() -> {
+                try {
+                    smsService.smsSend(phoneDto);
+                    future.complete(null);
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    lane.inFlight.release();
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            lane.inFlight.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Lane lane : lanes.values()) {
+            Gauge.builder("sms.pipeline.inflight", lane, l -> l.maxInFlight - l.inFlight.availablePermits())
+                    .tag("type", lane.type.name())
+                    .description("正在异步发送的短信数")
+                    .register(registry);
+        }
+    }
+
+    /**
+     * 一种短信类型的发送线程池
+     */
+    private static class Lane {
+        private final SmsType type;
+        private final int maxInFlight;
+        private final Semaphore inFlight;
+        private final ExecutorService executor;
+
+        private Lane(SmsType type, int threads, int maxInFlight) {
+            this.type = type;
+            this.maxInFlight = maxInFlight;
+            this.inFlight = new Semaphore(maxInFlight);
+            // 并发由 inFlight 控制，队列不会无限增长
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new CustomizableThreadFactory("sms-send-" + type.name().toLowerCase() + "-"));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.konosuba.rocketmq.sms.consumer.ratelimit;
+
+import com.konosuba.redis.provider.ratelimit.RateLimitResult;
+import com.konosuba.redis.provider.ratelimit.SlidingWindow;
+import com.konosuba.redis.provider.ratelimit.SlidingWindowRateLimiter;
+import com.konosuba.rocketmq.sms.common.message.SmsType;
+import com.konosuba.rocketmq.sms.common.redis.SmsRedisKeys;
+import com.konosuba.rocketmq.sms.consumer.config.SmsRateLimitProperties;
+import com.konosuba.rocketmq.sms.consumer.exception.SmsSendException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 按 sms.rate-limit 的规则限制发送频率
+ * <p>
+ * 只检查适用于短信类型的规则，验证码和营销短信可以有各自的次数限制，营销短信不会用掉验证码的次数。
+ * 所有规则在一次 redis 调用中检查，全部通过才计数。短信最终没有发出时用 release 撤销按手机号的计数，
+ * 失败重试不会占满用户的发送次数；全局规则的计数保留，网关可能已经收到了请求
+ *
+ * @author konosuba
+ */
+public class SmsRateLimiter {
+    private final SlidingWindowRateLimiter slidingWindowRateLimiter;
+    private final SmsRateLimitProperties properties;
+
+    public SmsRateLimiter(SlidingWindowRateLimiter slidingWindowRateLimiter, SmsRateLimitProperties properties) {
+        this.slidingWindowRateLimiter = slidingWindowRateLimiter;
+        this.properties = properties;
+        Set<String> names = new HashSet<>();
+        for (SmsRateLimitProperties.Rule rule : properties.getRules()) {
+            if (!names.add(rule.getName())) {
+                throw new IllegalStateException("限流规则重名：" + rule.getName());
+            }
+        }
+    }
+
+    /**
+     * 占用一次发送次数
+     *
+     * @param type  短信类型
+     * @param phone 手机号
+     * @return 通过的结果，发送失败时交给 release；未开启限流或者没有适用的规则时返回 null
+     * @throws SmsSendException 超过全局限制时可以重试，超过手机号的限制时不可重试
+     */
+    public RateLimitResult acquire(SmsType type, String phone) throws SmsSendException {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        List<SmsRateLimitProperties.Rule> rules = rules(type);
+        if (rules.isEmpty()) {
+            return null;
+        }
+        List<SlidingWindow> windows = new ArrayList<>(rules.size());
+        for (SmsRateLimitProperties.Rule rule : rules) {
+            windows.add(window(rule, phone));
+        }
+        RateLimitResult result = slidingWindowRateLimiter.tryAcquire(windows);
+        if (result.isAllowed()) {
+            return result;
+        }
+        SmsRateLimitProperties.Rule rule = rules.get(windows.indexOf(result.getRejectedBy()));
+        if (rule.getScope() == SmsRateLimitProperties.Scope.GLOBAL) {
+            // 网关会限流的请求不发出去，稍后重试
+            throw new SmsSendException("超过全局发送频率：" + rule.getName() + "，" + result.getRetryAfterMillis() + "ms 后恢复", true);
+        }
+        throw new SmsSendException("发送次数超过限制：" + rule.getName(), false);
+    }
+
+    /**
+     * 短信没有发出去，撤销按手机号的计数
+     *
+     * @param type   短信类型，与 acquire 时相同
+     * @param phone  手机号
+     * @param result acquire 返回的结果，为 null 时什么都不做
+     */
+    public void release(SmsType type, String phone, RateLimitResult result) {
+        if (result == null) {
+            return;
+        }
+        List<SlidingWindow> windows = new ArrayList<>();
+        for (SmsRateLimitProperties.Rule rule : rules(type)) {
+            if (rule.getScope() != SmsRateLimitProperties.Scope.GLOBAL) {
+                windows.add(window(rule, phone));
+            }
+        }
+        slidingWindowRateLimiter.release(result, windows);
+    }
+
+    private List<SmsRateLimitProperties.Rule> rules(SmsType type) {
+        List<SmsRateLimitProperties.Rule> rules = new ArrayList<>();
+        for (SmsRateLimitProperties.Rule rule : properties.getRules()) {
+            if (rule.appliesTo(type)) {
+                rules.add(rule);
+            }
+        }
+        return rules;
+    }
+
+    private static SlidingWindow window(SmsRateLimitProperties.Rule rule, String phone) {
+        String key = rule.getScope() == SmsRateLimitProperties.Scope.GLOBAL
+                ? SmsRedisKeys.globalRateLimit(rule.getName())
+                : SmsRedisKeys.rateLimit(rule.getName(), phone);
+        return new SlidingWindow(key, rule.getLimit(), rule.getWindow().toMillis());
+    }
+}
@@ -1,21 +1,25 @@
 package com.konosuba.rocketmq.sms.consumer.service.impl;
 
 import com.alibaba.fastjson.JSONObject;
-import com.aliyuncs.CommonRequest;
-import com.aliyuncs.CommonResponse;
-import com.aliyuncs.DefaultAcsClient;
-import com.aliyuncs.IAcsClient;
-import com.aliyuncs.http.MethodType;
-import com.aliyuncs.profile.DefaultProfile;
+import com.konosuba.redis.provider.ratelimit.RateLimitResult;
 import com.konosuba.redis.provider.service.RedisService;
+import com.konosuba.rocketmq.sms.common.message.SmsType;
+import com.konosuba.rocketmq.sms.common.redis.SmsRedisKeys;
+import com.konosuba.rocketmq.sms.common.validator.PhoneNumberValidator;
 import com.konosuba.rocketmq.sms.consumer.config.SmsConfig;
 import com.konosuba.rocketmq.sms.consumer.domain.dto.PhoneDto;
+import com.konosuba.rocketmq.sms.consumer.exception.SmsSendException;
+import com.konosuba.rocketmq.sms.consumer.gateway.SmsBatchDispatcher;
+import com.konosuba.rocketmq.sms.consumer.gateway.SmsGatewayClient;
+import com.konosuba.rocketmq.sms.consumer.ratelimit.SmsRateLimiter;
 import com.konosuba.rocketmq.sms.consumer.service.SmsService;
-import com.konosuba.rocketmq.sms.consumer.utils.VerificationCodeUtils;
-import org.springframework.cloud.stream.annotation.StreamListener;
+import com.konosuba.rocketmq.sms.consumer.utils.VerificationCodeGenerator;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -23,64 +27,94 @@ import java.util.concurrent.TimeUnit;
  *
  * @author konosuba
  */
+@Slf4j
 @Service
 public class SmsServiceImpl implements SmsService {
 
     @Resource
     private RedisService redisService;
     @Resource
+    private SmsGatewayClient smsGatewayClient;
+    @Resource
+    private SmsBatchDispatcher smsBatchDispatcher;
+    @Resource
+    private VerificationCodeGenerator verificationCodeGenerator;
+    @Resource
+    private PhoneNumberValidator phoneNumberValidator;
+    @Resource
+    private SmsRateLimiter smsRateLimiter;
+    @Resource
     private SmsConfig smsConfig;
     @Override
-    @StreamListener("input")
     public void smsSend(PhoneDto phoneDto) throws Exception {
         // 验证码
-        String verificationCode = VerificationCodeUtils.getVerificationCode();
+        String verificationCode = verificationCodeGenerator.generate();
         //将验证码转化为JSON格式
         JSONObject smsJson = new JSONObject();
         smsJson.put("code", verificationCode);
-        // 验证收件人手机号
-        String phone = phoneDto.getPhone();
-        if (!phone.matches("^((13[0-9])|(14[0,1,4-9])|(15[0-3,5-9])|(16[2,5,6,7])|(17[0-8])|(18[0-9])|(19[0-3,5-9]))\\d{8}$")){
+        // 验证收件人手机号，旧版本生产者发出的号码可能不是统一格式，所有键都按转换后的号码计算
+        String phone = phoneNumberValidator.normalize(phoneDto.getPhone());
+        if (phone == null){
             throw new Exception("手机号错误");
         }
-        // 判断是否频繁发送
-        if (redisService.get(phone) != null){
+        phoneDto.setPhone(phone);
+        // 设置过期时间
+        int timeout = 60;
+        // 判断是否频繁发送，并在调用网关之前原子地占用发送名额；营销短信有自己的冷却，不影响验证码
+        SmsType type = phoneDto.getType();
+        String cooldownKey = SmsRedisKeys.cooldown(type, phone);
+        String codeKey = SmsRedisKeys.code(phone);
+        if (!Boolean.TRUE.equals(redisService.setIfAbsent(cooldownKey, verificationCode, timeout, TimeUnit.SECONDS))){
             throw new Exception("发送频繁");
         }
-        //初始化ascClient,暂时不支持多region（请勿修改）
-        DefaultProfile profile = DefaultProfile.getProfile("cn-hangzhou", smsConfig.getAccessKeyId(), smsConfig.getAccessKeySecret());
-        IAcsClient client = new DefaultAcsClient(profile);
-
-        // 组装请求对象
-        CommonRequest request = new CommonRequest();
-        // 发送短信的请求方式
-        request.setSysMethod(MethodType.POST);
-        // 短信API产品名称
-        request.setSysDomain(smsConfig.getDomain());
-        // 短信API产品域名
-        request.setSysProduct(smsConfig.getProduct());
-        // 版本号，看着阿里的文档改
-        request.setSysVersion("2017-05-25");
-        request.setSysAction("SendSms");
-        // 地域ID
-        request.setSysRegionId("cn-hangzhou");
-        // 收信人手机号
-        request.putQueryParameter("PhoneNumbers", phone);
-        // 签名
-        request.putQueryParameter("SignName", smsConfig.getSignName());
-        // 短信模板
-        request.putQueryParameter("TemplateCode", smsConfig.getTemplateCode());
-        // 验证码，要将 JSON 格式
-        request.putQueryParameter("TemplateParam", smsJson.toJSONString());
-        // 发送失败不会再次尝试
+        RateLimitResult rateLimit = null;
         try {
-            CommonResponse response = client.getCommonResponse(request);
+            // 超过发送频率限制的短信不调用网关
+            rateLimit = smsRateLimiter.acquire(type, phone);
+            send(type, phone, smsJson);
         } catch (Exception e) {
-            e.printStackTrace();
+            // 发送失败释放发送名额，网关确认成功后才算真正进入冷却，用户不会因为没收到的短信被限制
+            // 只删除自己占用的名额，名额过期后别的消息重新占用的不受影响
+            redisService.executeScript("compare_and_delete", Long.class, Collections.singletonList(cooldownKey), verificationCode);
+            // 没发出去的短信不占用该号码的发送次数，重试时重新计数
+            smsRateLimiter.release(type, phone, rateLimit);
+            throw e;
+        }
+        // 营销短信不是验证码，不能替换用户正要输入的验证码
+        if (type != SmsType.MARKETING) {
+            saveCode(phone, codeKey, verificationCode);
+        }
+    }
+
+    /**
+     * 网关确认发出后才保存待校验的验证码，新验证码替换旧的，失败次数重新计算；发送失败时用户手里的旧验证码仍然有效
+     * <p>
+     * 短信已经发出，这里失败时不释放冷却和发送次数，也不抛出异常让消息重试，否则同一个号码会马上再收到一条短信
+     */
+    private void saveCode(String phone, String codeKey, String verificationCode) {
+        try {
+            redisService.pipeline(pipeline -> {
+                pipeline.set(codeKey, verificationCode, smsConfig.getCodeTtlSeconds(), TimeUnit.SECONDS);
+                pipeline.delete(SmsRedisKeys.codeAttempts(phone));
+            });
+        } catch (RuntimeException e) {
+            log.error("短信已发出，保存验证码失败，用户需要重新获取验证码，phone={}", phone, e);
+        }
+    }
+
+    private void send(SmsType type, String phone, JSONObject smsJson) throws SmsSendException, InterruptedException {
+        if (!smsBatchDispatcher.isEnabled()) {
+            smsGatewayClient.sendSms(type, phone, smsJson.toJSONString());
+            return;
+        }
+        // 批量模式下等待所在批次发送完成，每条消息仍然单独确认
+        try {
+            smsBatchDispatcher.submit(type, phone, smsJson).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SmsSendException) {
+                throw (SmsSendException) e.getCause();
+            }
+            throw new SmsSendException("批量发送失败", e.getCause(), true);
         }
-        // 设置过期时间
-        int timeout = 60;
-        // 将验证码存储到redis
-        redisService.set(phone, verificationCode, timeout, TimeUnit.SECONDS);
     }
 }
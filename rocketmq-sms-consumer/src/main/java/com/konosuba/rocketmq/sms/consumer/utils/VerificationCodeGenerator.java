@@ -0,0 +1,115 @@
+package com.konosuba.rocketmq.sms.consumer.utils;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * 验证码生成器，线程安全
+ * <p>
+ * 每个线程持有自己的 SecureRandom 和字符缓冲区，线程之间没有竞争。
+ * 一个验证码只取一次随机数：在 [0, 字符数^长度) 中均匀取一个数，再按进制逐位写入缓冲区
+ *
+ * @author konosuba
+ */
+public final class VerificationCodeGenerator {
+    /**
+     * 纯数字
+     */
+    public static final String DIGITS = "0123456789";
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(VerificationCodeGenerator::newRandom);
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[16]);
+
+    private final int length;
+    private final char[] alphabet;
+    /**
+     * 一次随机数最多能覆盖的位数，不超过 long 的范围
+     */
+    private final int charsPerDraw;
+    /**
+     * 字符数^charsPerDraw
+     */
+    private final long drawBound;
+
+    /**
+     * @param length   验证码长度
+     * @param alphabet 验证码可用的字符
+     */
+    public VerificationCodeGenerator(int length, String alphabet) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("验证码长度必须大于 0");
+        }
+        if (alphabet == null || alphabet.length() < 2) {
+            throw new IllegalArgumentException("验证码字符至少两个");
+        }
+        this.length = length;
+        this.alphabet = alphabet.toCharArray();
+        int radix = this.alphabet.length;
+        int chars = 0;
+        long bound = 1;
+        while (chars < length && bound <= Long.MAX_VALUE / radix) {
+            bound *= radix;
+            chars++;
+        }
+        this.charsPerDraw = chars;
+        this.drawBound = bound;
+    }
+
+    /**
+     * 生成验证码
+     *
+     * @return 验证码
+     */
+    public String generate() {
+        char[] buffer = BUFFER.get();
+        if (buffer.length < length) {
+            buffer = new char[length];
+            BUFFER.set(buffer);
+        }
+        SecureRandom random = RANDOM.get();
+        int radix = alphabet.length;
+        int pos = length;
+        while (pos > 0) {
+            int chars = Math.min(pos, charsPerDraw);
+            long value = chars == charsPerDraw ? nextLong(random, drawBound) : nextLong(random, pow(radix, chars));
+            for (int i = 0; i < chars; i++) {
+                buffer[--pos] = alphabet[(int) (value % radix)];
+                value /= radix;
+            }
+        }
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * 在 [0, bound) 中均匀地取一个数，与 Random.nextInt(int) 一样用拒绝采样消除取模偏差
+     */
+    private static long nextLong(SecureRandom random, long bound) {
+        if (bound <= Integer.MAX_VALUE) {
+            return random.nextInt((int) bound);
+        }
+        long bits;
+        long value;
+        do {
+            bits = random.nextLong() >>> 1;
+            value = bits % bound;
+        } while (bits - value + (bound - 1) < 0L);
+        return value;
+    }
+
+    private static long pow(int radix, int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= radix;
+        }
+        return result;
+    }
+
+    private static SecureRandom newRandom() {
+        try {
+            // 每个实例各自加锁，不会像默认的 NativePRNG 那样所有线程争用同一把锁
+            return SecureRandom.getInstance("SHA1PRNG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+}
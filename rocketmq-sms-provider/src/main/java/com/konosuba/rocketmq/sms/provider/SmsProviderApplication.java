@@ -1,9 +1,9 @@
 package com.konosuba.rocketmq.sms.provider;
 
+import com.konosuba.rocketmq.sms.provider.binding.SmsSource;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.stream.annotation.EnableBinding;
-import org.springframework.cloud.stream.messaging.Source;
 
 /**
  * 启动类
@@ -11,8 +11,8 @@ import org.springframework.cloud.stream.messaging.Source;
  * @author konosuba
  */
 
-@SpringBootApplication
-@EnableBinding(Source.class)
+@SpringBootApplication(scanBasePackages = {"com.konosuba.redis.provider", "com.konosuba.rocketmq.sms.common", "com.konosuba.rocketmq.sms.provider"})
+@EnableBinding(SmsSource.class)
 public class SmsProviderApplication {
     public static void main(String[] args) {
         SpringApplication.run(SmsProviderApplication.class, args);
@@ -0,0 +1,25 @@
+package com.konosuba.rocketmq.sms.provider.binding;
+
+import org.springframework.cloud.stream.annotation.Output;
+import org.springframework.cloud.stream.messaging.Source;
+import org.springframework.messaging.MessageChannel;
+
+/**
+ * 短信生产者的消息通道，验证码使用 Source 的 output，营销短信使用单独的 topic
+ *
+ * @author konosuba
+ */
+public interface SmsSource extends Source {
+    /**
+     * 营销短信通道
+     */
+    String MARKETING_OUTPUT = "marketingOutput";
+
+    /**
+     * 营销短信通道
+     *
+     * @return MessageChannel
+     */
+    @Output(MARKETING_OUTPUT)
+    MessageChannel marketingOutput();
+}
@@ -0,0 +1,68 @@
+package com.konosuba.rocketmq.sms.provider.config;
+
+import com.konosuba.rocketmq.sms.common.message.SmsType;
+import lombok.Data;
+import org.apache.rocketmq.client.producer.DefaultMQProducer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 直接使用 RocketMQ 客户端发送的配置，用于 Spring Cloud Stream 不支持的批量消息
+ *
+ * @author konosuba
+ */
+@Data
+@Configuration
+public class SmsProducerConfig {
+    @Value("${spring.cloud.stream.rocketmq.binder.name-server}")
+    private String nameServer;
+    @Value("${spring.cloud.stream.bindings.output.destination}")
+    private String topic;
+    @Value("${spring.cloud.stream.bindings.marketingOutput.destination}")
+    private String marketingTopic;
+    @Value("${sms.provider.producer-group:sms-provider-batch-group}")
+    private String producerGroup;
+    /**
+     * 分区数，与 Spring Cloud Stream 的 output 的 partition-count 相同，直接发送时按它计算队列
+     */
+    @Value("${sms.partition-count:4}")
+    private int partitionCount;
+    /**
+     * 一批消息的最大字节数，不能超过 broker 的 maxMessageSize（默认 4M）
+     */
+    @Value("${sms.provider.batch.max-bytes:1048576}")
+    private int batchMaxBytes;
+    /**
+     * 一次请求最多多少个号码
+     */
+    @Value("${sms.provider.batch.max-items:100000}")
+    private int batchMaxItems;
+    /**
+     * 异步发送时最多有多少条消息在等待 broker 确认，超过后返回 429
+     */
+    @Value("${sms.provider.async.max-pending:10000}")
+    private int asyncMaxPending;
+
+    /**
+     * 短信类型对应的 topic，与 Spring Cloud Stream 的通道一致
+     *
+     * @param type 短信类型
+     * @return topic
+     */
+    public String topic(SmsType type) {
+        return type == SmsType.MARKETING ? marketingTopic : topic;
+    }
+
+    /**
+     * 将 DefaultMQProducer 对象注册到容器中
+     *
+     * @return DefaultMQProducer 对象
+     */
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    public DefaultMQProducer smsProducer() {
+        DefaultMQProducer producer = new DefaultMQProducer(producerGroup);
+        producer.setNamesrvAddr(nameServer);
+        return producer;
+    }
+}
@@ -1,14 +1,43 @@
 package com.konosuba.rocketmq.sms.provider.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.konosuba.rocketmq.sms.common.message.SmsMessageHeaders;
+import com.konosuba.rocketmq.sms.common.message.SmsType;
+import com.konosuba.rocketmq.sms.common.trace.Span;
+import com.konosuba.rocketmq.sms.common.trace.Tracer;
+import com.konosuba.rocketmq.sms.common.validator.PhoneNumberValidator;
+import com.konosuba.rocketmq.sms.provider.binding.SmsSource;
+import com.konosuba.rocketmq.sms.provider.domain.VerifyResult;
+import com.konosuba.rocketmq.sms.provider.domain.dto.BatchSendResultDto;
 import com.konosuba.rocketmq.sms.provider.domain.dto.MemberPhoneDto;
+import com.konosuba.rocketmq.sms.provider.domain.dto.VerifyCodeDto;
+import com.konosuba.rocketmq.sms.provider.service.SmsPublishService;
+import com.konosuba.rocketmq.sms.provider.service.SmsVerifyService;
+import com.konosuba.rocketmq.sms.provider.exception.TooManyPendingException;
+import com.konosuba.rocketmq.sms.provider.metrics.SmsPublishMetrics;
+import io.micrometer.core.instrument.Timer;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * 发送短信的接口
@@ -18,12 +47,200 @@ import javax.annotation.Resource;
 @RestController
 @RequestMapping("/provider")
 public class SmsController {
+    /**
+     * 每行一个 JSON 对象
+     */
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
 
-    @Resource(name = "output")
-    private MessageChannel messageChannel;
+    @Resource
+    private SmsSource smsSource;
+    @Resource
+    private PhoneNumberValidator phoneNumberValidator;
+    @Resource
+    private SmsPublishService smsPublishService;
+    @Resource
+    private SmsVerifyService smsVerifyService;
+    @Resource
+    private ObjectMapper objectMapper;
+    @Resource
+    private SmsPublishMetrics smsPublishMetrics;
+    @Resource
+    private Tracer tracer;
 
+    /**
+     * 请求头中带 traceparent 时接上调用方的链路，否则从这里开始一条新的链路，traceparent 随消息传给消费者
+     */
     @PostMapping("/sms")
-    public Boolean smsSend(@RequestBody MemberPhoneDto memberPhoneDto){
-        return messageChannel.send(MessageBuilder.withPayload(memberPhoneDto).build());
+    public ResponseEntity<Boolean> smsSend(@RequestBody MemberPhoneDto memberPhoneDto,
+                                           @RequestHeader(value = SmsMessageHeaders.TRACEPARENT, required = false) String traceparent) {
+        // 手机号错误直接返回，不再发到 RocketMQ
+        if (!normalizePhone(memberPhoneDto)) {
+            return ResponseEntity.badRequest().body(false);
+        }
+        Timer.Sample sample = smsPublishMetrics.start();
+        Span span = publishSpan("sms", traceparent, memberPhoneDto.getType());
+        String acceptedAt = String.valueOf(System.currentTimeMillis());
+        boolean sent = false;
+        try (Tracer.Scope ignored = tracer.withSpan(span)) {
+            // 消息唯一键在这里生成，生产者内部重试发出的消息键不变，消费者据此去重
+            sent = output(memberPhoneDto.getType()).send(MessageBuilder.withPayload(memberPhoneDto)
+                    .setHeader(SmsMessageHeaders.MESSAGE_KEY, SmsMessageHeaders.newMessageKey())
+                    // 按号码分区，见 output 的 partition-key-expression
+                    .setHeader(SmsMessageHeaders.SHARDING_KEY, memberPhoneDto.getPhone())
+                    .setHeader(SmsMessageHeaders.ACCEPTED_AT, acceptedAt)
+                    .setHeader(SmsMessageHeaders.PUBLISHED_AT, String.valueOf(System.currentTimeMillis()))
+                    .setHeader(SmsMessageHeaders.TRACEPARENT, span.context().toTraceparent())
+                    .build());
+            return ResponseEntity.ok(sent);
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            smsPublishMetrics.stop(sample, "sms", sent);
+            span.tag("sent", String.valueOf(sent)).finish();
+        }
+    }
+
+    /**
+     * 异步发送，不占用 Tomcat 线程等待 broker 确认，等待确认的消息过多时返回 429
+     */
+    @PostMapping("/sms/async")
+    public CompletableFuture<ResponseEntity<Boolean>> smsSendAsync(@RequestBody MemberPhoneDto memberPhoneDto,
+                                                                   @RequestHeader(value = SmsMessageHeaders.TRACEPARENT, required = false) String traceparent) {
+        if (!normalizePhone(memberPhoneDto)) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(false));
+        }
+        Timer.Sample sample = smsPublishMetrics.start();
+        Span span = publishSpan("async", traceparent, memberPhoneDto.getType());
+        CompletableFuture<SendResult> future;
+        try (Tracer.Scope ignored = tracer.withSpan(span)) {
+            future = smsPublishService.publishAsync(memberPhoneDto);
+        }
+        return future
+                .whenComplete((sendResult, e) -> {
+                    smsPublishMetrics.stop(sample, "async", e == null);
+                    if (e != null) {
+                        span.error(e);
+                    }
+                    span.finish();
+                })
+                .thenApply(sendResult -> ResponseEntity.ok(true))
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    HttpStatus status = cause instanceof TooManyPendingException ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE;
+                    return ResponseEntity.status(status).body(false);
+                });
+    }
+
+    /**
+     * 批量发送，请求体为 JSON 数组，所有号码在同一条链路中
+     */
+    @PostMapping(value = "/sms/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BatchSendResultDto smsBatchSend(@RequestBody List<MemberPhoneDto> memberPhoneDtos,
+                                           @RequestHeader(value = SmsMessageHeaders.TRACEPARENT, required = false) String traceparent) {
+        Timer.Sample sample = smsPublishMetrics.start();
+        Span span = publishSpan("batch", traceparent, null);
+        boolean success = false;
+        try (Tracer.Scope ignored = tracer.withSpan(span)) {
+            BatchSendResultDto result = smsPublishService.publishBatch(memberPhoneDtos.iterator());
+            // 有号码没有发出时记为失败，抛出异常时同样记为失败
+            success = result.getRejected() == 0 && !result.isTruncated();
+            span.tag("accepted", String.valueOf(result.getAccepted()));
+            return result;
+        } finally {
+            smsPublishMetrics.stop(sample, "batch", success);
+            span.finish();
+        }
+    }
+
+    /**
+     * 批量发送，请求体为 NDJSON，边读边发
+     */
+    @PostMapping(value = "/sms/batch", consumes = APPLICATION_NDJSON_VALUE)
+    public BatchSendResultDto smsBatchSendStream(HttpServletRequest request,
+                                                 @RequestHeader(value = SmsMessageHeaders.TRACEPARENT, required = false) String traceparent) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+            Iterator<MemberPhoneDto> phones = reader.lines()
+                    .filter(line -> !line.trim().isEmpty())
+                    .map(this::parseLine)
+                    .iterator();
+            Timer.Sample sample = smsPublishMetrics.start();
+            Span span = publishSpan("batch", traceparent, null);
+            boolean success = false;
+            try (Tracer.Scope ignored = tracer.withSpan(span)) {
+                BatchSendResultDto result = smsPublishService.publishBatch(phones);
+                // 有号码没有发出时记为失败，抛出异常时同样记为失败
+                success = result.getRejected() == 0 && !result.isTruncated();
+                span.tag("accepted", String.valueOf(result.getAccepted()));
+                return result;
+            } finally {
+                smsPublishMetrics.stop(sample, "batch", success);
+                span.finish();
+            }
+        }
+    }
+
+    /**
+     * 校验验证码，成功后验证码作废；错误返回 400，过期返回 410，错误次数达到上限返回 429
+     */
+    @PostMapping("/sms/verify")
+    public ResponseEntity<VerifyResult> smsVerify(@RequestBody VerifyCodeDto verifyCodeDto) {
+        // 与发送时一样按统一格式的号码查验证码
+        String phone = phoneNumberValidator.normalize(verifyCodeDto.getPhone());
+        if (phone == null) {
+            return ResponseEntity.badRequest().body(VerifyResult.MISMATCH);
+        }
+        VerifyResult result = smsVerifyService.verify(phone, verifyCodeDto.getCode());
+        switch (result) {
+            case SUCCESS:
+                return ResponseEntity.ok(result);
+            case EXPIRED:
+                return ResponseEntity.status(HttpStatus.GONE).body(result);
+            case LOCKED:
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(result);
+            default:
+                return ResponseEntity.badRequest().body(result);
+        }
+    }
+
+    /**
+     * 校验手机号并换成 E.164 格式，消息中只发布统一格式的号码，消费者的冷却、限流键和分区键都按它计算
+     *
+     * @return 手机号合法返回 true
+     */
+    private boolean normalizePhone(MemberPhoneDto memberPhoneDto) {
+        String phone = phoneNumberValidator.normalize(memberPhoneDto.getPhone());
+        if (phone == null) {
+            return false;
+        }
+        memberPhoneDto.setPhone(phone);
+        return true;
+    }
+
+    /**
+     * 营销短信进入单独的 topic，积压时不影响验证码
+     */
+    private MessageChannel output(SmsType type) {
+        return type == SmsType.MARKETING ? smsSource.marketingOutput() : smsSource.output();
+    }
+
+    /**
+     * 发布消息的 span，批量请求中短信类型可能不同，不记录类型
+     */
+    private Span publishSpan(String endpoint, String traceparent, SmsType type) {
+        Span span = tracer.joinSpan("sms.publish", traceparent).tag("endpoint", endpoint);
+        return type == null ? span : span.tag("type", type.name());
+    }
+
+    /**
+     * 解析一行 NDJSON，失败时返回 null
+     */
+    private MemberPhoneDto parseLine(String line) {
+        try {
+            return objectMapper.readValue(line, MemberPhoneDto.class);
+        } catch (IOException e) {
+            // 交给 publishBatch 按格式错误记录，不当作号码错误
+            return null;
+        }
     }
 }
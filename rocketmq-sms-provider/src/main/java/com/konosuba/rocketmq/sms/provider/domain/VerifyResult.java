@@ -0,0 +1,25 @@
+package com.konosuba.rocketmq.sms.provider.domain;
+
+/**
+ * 验证码校验结果
+ *
+ * @author konosuba
+ */
+public enum VerifyResult {
+    /**
+     * 校验通过，验证码已经作废
+     */
+    SUCCESS,
+    /**
+     * 验证码错误
+     */
+    MISMATCH,
+    /**
+     * 没有发送过验证码或者已经过期
+     */
+    EXPIRED,
+    /**
+     * 错误次数达到上限，验证码已经作废，需要重新发送
+     */
+    LOCKED
+}
@@ -0,0 +1,32 @@
+package com.konosuba.rocketmq.sms.provider.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 批量发送中每个号码的结果
+ *
+ * @author konosuba
+ */
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResultDto implements Serializable {
+    /**
+     * 在请求中的位置，从 0 开始
+     */
+    private int index;
+    private String phone;
+    /**
+     * 是否已经发到 RocketMQ，false 时客户端可以只重试这些号码
+     */
+    private boolean accepted;
+    /**
+     * 未接受的原因
+     */
+    private String reason;
+}
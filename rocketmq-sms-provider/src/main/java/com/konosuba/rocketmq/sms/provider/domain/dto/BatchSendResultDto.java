@@ -0,0 +1,34 @@
+package com.konosuba.rocketmq.sms.provider.domain.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 批量发送的结果
+ *
+ * @author konosuba
+ */
+
+@Data
+public class BatchSendResultDto implements Serializable {
+    private int accepted;
+    private int rejected;
+    private List<BatchItemResultDto> items;
+    /**
+     * 请求中的号码超过上限，之后的号码没有读取，也不在 items 中
+     */
+    private boolean truncated;
+
+    public BatchSendResultDto(List<BatchItemResultDto> items) {
+        this.items = items;
+        for (BatchItemResultDto item : items) {
+            if (item.isAccepted()) {
+                accepted++;
+            } else {
+                rejected++;
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.konosuba.rocketmq.sms.provider.domain.dto;
 
+import com.konosuba.rocketmq.sms.common.message.SmsType;
 import lombok.Data;
 
 import java.io.Serializable;
@@ -13,4 +14,8 @@ import java.io.Serializable;
 @Data
 public class MemberPhoneDto implements Serializable {
     private String phone;
+    /**
+     * 短信类型，决定消息进入哪个 topic，不传时按验证码处理
+     */
+    private SmsType type = SmsType.OTP;
 }
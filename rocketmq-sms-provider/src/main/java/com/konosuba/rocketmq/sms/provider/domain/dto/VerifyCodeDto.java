@@ -0,0 +1,22 @@
+package com.konosuba.rocketmq.sms.provider.domain.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 校验验证码的请求
+ *
+ * @author konosuba
+ */
+@Data
+public class VerifyCodeDto implements Serializable {
+    /**
+     * 手机号
+     */
+    private String phone;
+    /**
+     * 用户输入的验证码
+     */
+    private String code;
+}
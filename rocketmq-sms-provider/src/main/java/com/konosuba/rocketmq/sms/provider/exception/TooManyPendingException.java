@@ -0,0 +1,13 @@
+package com.konosuba.rocketmq.sms.provider.exception;
+
+/**
+ * 等待 broker 确认的消息太多，暂时不再接收
+ *
+ * @author konosuba
+ */
+public class TooManyPendingException extends RuntimeException {
+
+    public TooManyPendingException(int maxPending) {
+        super("等待 RocketMQ 确认的消息已达上限 " + maxPending);
+    }
+}
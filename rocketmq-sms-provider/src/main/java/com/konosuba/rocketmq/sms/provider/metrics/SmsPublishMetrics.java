@@ -0,0 +1,47 @@
+package com.konosuba.rocketmq.sms.provider.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.time.Duration;
+
+/**
+ * 统计从收到请求到消息交给 RocketMQ 的耗时，指标 sms.provider.publish
+ *
+ * @author konosuba
+ */
+@Component
+public class SmsPublishMetrics {
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 收到请求时开始计时
+     *
+     * @return Timer.Sample 对象
+     */
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * 发布完成时结束计时
+     *
+     * @param sample   start() 的返回值
+     * @param endpoint 接口：sms、async 或 batch
+     * @param success  broker 是否确认，批量发送时所有号码都被确认才算成功
+     */
+    public void stop(Timer.Sample sample, String endpoint, boolean success) {
+        sample.stop(Timer.builder("sms.provider.publish")
+                .tag("endpoint", endpoint)
+                .tag("outcome", success ? "success" : "failure")
+                .description("从收到请求到 RocketMQ 确认的耗时")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry));
+    }
+}
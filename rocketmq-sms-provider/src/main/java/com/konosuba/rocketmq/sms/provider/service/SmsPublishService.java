@@ -0,0 +1,35 @@
+package com.konosuba.rocketmq.sms.provider.service;
+
+import com.konosuba.rocketmq.sms.provider.domain.dto.BatchSendResultDto;
+import com.konosuba.rocketmq.sms.provider.domain.dto.MemberPhoneDto;
+import org.apache.rocketmq.client.producer.SendResult;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 发布短信消息
+ *
+ * @author konosuba
+ */
+public interface SmsPublishService {
+    /**
+     * 批量发布，按号码所在的队列和 broker 的消息大小限制分块，每块是一次 RocketMQ 批量消息
+     * <p>
+     * 超过 sms.provider.batch.max-items 后不再读取，结果中 truncated 为 true
+     *
+     * @param phones 收件人，边读边发，不需要一次全部读进内存；元素为 null 表示请求中的这一项无法解析
+     * @return 每个号码是否被接受
+     */
+    BatchSendResultDto publishBatch(Iterator<MemberPhoneDto> phones);
+
+    /**
+     * 异步发布，不阻塞调用线程，broker 确认后 Future 完成
+     * <p>
+     * 等待确认的消息达到上限时，返回的 Future 以 TooManyPendingException 失败
+     *
+     * @param memberPhoneDto 收件人
+     * @return broker 的确认结果
+     */
+    CompletableFuture<SendResult> publishAsync(MemberPhoneDto memberPhoneDto);
+}
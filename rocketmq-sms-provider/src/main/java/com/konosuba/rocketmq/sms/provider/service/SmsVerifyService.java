@@ -0,0 +1,19 @@
+package com.konosuba.rocketmq.sms.provider.service;
+
+import com.konosuba.rocketmq.sms.provider.domain.VerifyResult;
+
+/**
+ * 校验验证码
+ *
+ * @author konosuba
+ */
+public interface SmsVerifyService {
+    /**
+     * 校验验证码，一次 redis 调用完成比较、作废和失败计数
+     *
+     * @param phone 手机号
+     * @param code  用户输入的验证码
+     * @return 校验结果
+     */
+    VerifyResult verify(String phone, String code);
+}
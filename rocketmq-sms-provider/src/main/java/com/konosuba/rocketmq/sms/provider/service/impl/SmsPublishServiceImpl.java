@@ -0,0 +1,246 @@
+package com.konosuba.rocketmq.sms.provider.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.konosuba.rocketmq.sms.common.message.SmsMessageHeaders;
+import com.konosuba.rocketmq.sms.common.trace.TraceContext;
+import com.konosuba.rocketmq.sms.common.trace.Tracer;
+import com.konosuba.rocketmq.sms.common.validator.PhoneNumberValidator;
+import com.konosuba.rocketmq.sms.provider.config.SmsProducerConfig;
+import com.konosuba.rocketmq.sms.provider.domain.dto.BatchItemResultDto;
+import com.konosuba.rocketmq.sms.provider.domain.dto.BatchSendResultDto;
+import com.konosuba.rocketmq.sms.provider.domain.dto.MemberPhoneDto;
+import com.konosuba.rocketmq.sms.provider.service.SmsPublishService;
+import com.konosuba.rocketmq.sms.provider.exception.TooManyPendingException;
+import org.apache.rocketmq.client.exception.MQClientException;
+import org.apache.rocketmq.client.producer.DefaultMQProducer;
+import org.apache.rocketmq.client.producer.MessageQueueSelector;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.common.message.Message;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 发布短信消息实现类
+ *
+ * @author konosuba
+ */
+@Service
+public class SmsPublishServiceImpl implements SmsPublishService {
+    /**
+     * 每条消息除消息体和 topic 外的开销，与 RocketMQ 批量消息示例中的估算一致
+     */
+    private static final int MESSAGE_OVERHEAD = 20;
+
+    @Resource
+    private DefaultMQProducer smsProducer;
+    @Resource
+    private SmsProducerConfig smsProducerConfig;
+    @Resource
+    private PhoneNumberValidator phoneNumberValidator;
+    @Resource
+    private ObjectMapper objectMapper;
+    @Resource
+    private Tracer tracer;
+
+    private Semaphore pending;
+    /**
+     * 按手机号选择队列，arg 为手机号
+     */
+    private final MessageQueueSelector phoneSelector = (queues, message, phone) -> selectQueue(queues, (String) phone);
+
+    @PostConstruct
+    public void init() {
+        pending = new Semaphore(smsProducerConfig.getAsyncMaxPending());
+    }
+
+    @Override
+    public BatchSendResultDto publishBatch(Iterator<MemberPhoneDto> phones) {
+        List<BatchItemResultDto> results = new ArrayList<>();
+        Map<String, List<MessageQueue>> queuesByTopic = new HashMap<>();
+        // 一批消息只能发到一个队列，按号码所在的队列分别攒批
+        Map<MessageQueue, Chunk> chunks = new HashMap<>();
+        int index = 0;
+        boolean truncated = false;
+        while (phones.hasNext()) {
+            // 超过上限后不再读取请求，结果不会随请求无限增长
+            if (index >= smsProducerConfig.getBatchMaxItems()) {
+                truncated = true;
+                break;
+            }
+            MemberPhoneDto memberPhoneDto = phones.next();
+            if (memberPhoneDto == null) {
+                results.add(new BatchItemResultDto(index++, null, false, "格式错误，无法解析"));
+                continue;
+            }
+            BatchItemResultDto item = new BatchItemResultDto(index++, memberPhoneDto.getPhone(), false, null);
+            results.add(item);
+            // 结果中保留请求里的写法，消息中发布统一格式的号码
+            String phone = phoneNumberValidator.normalize(memberPhoneDto.getPhone());
+            if (phone == null) {
+                item.setReason("手机号错误");
+                continue;
+            }
+            memberPhoneDto.setPhone(phone);
+            Message message = toMessage(memberPhoneDto);
+            MessageQueue queue;
+            try {
+                queue = selectQueue(message.getTopic(), memberPhoneDto.getPhone(), queuesByTopic);
+            } catch (MQClientException e) {
+                item.setReason("获取 RocketMQ 队列失败：" + e.getMessage());
+                continue;
+            }
+            int size = sizeOf(message);
+            Chunk chunk = chunks.computeIfAbsent(queue, k -> new Chunk());
+            // 再加一条就超过限制时，先把当前这一块发出去
+            if (!chunk.messages.isEmpty() && chunk.bytes + size > smsProducerConfig.getBatchMaxBytes()) {
+                send(queue, chunk);
+                chunk.clear();
+            }
+            chunk.add(message, item, size);
+        }
+        chunks.forEach((queue, chunk) -> {
+            if (!chunk.messages.isEmpty()) {
+                send(queue, chunk);
+            }
+        });
+        BatchSendResultDto result = new BatchSendResultDto(results);
+        result.setTruncated(truncated);
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<SendResult> publishAsync(MemberPhoneDto memberPhoneDto) {
+        CompletableFuture<SendResult> future = new CompletableFuture<>();
+        if (!pending.tryAcquire()) {
+            future.completeExceptionally(new TooManyPendingException(smsProducerConfig.getAsyncMaxPending()));
+            return future;
+        }
+        try {
+            // 与 Spring Cloud Stream 的 output 相同，按号码选择队列
+            smsProducer.send(toMessage(memberPhoneDto), phoneSelector, memberPhoneDto.getPhone(), new SendCallback() {
+                @Override
+                public void onSuccess(SendResult sendResult) {
+                    pending.release();
+                    future.complete(sendResult);
+                }
+
+                @Override
+                public void onException(Throwable e) {
+                    pending.release();
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (Exception e) {
+            pending.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 与 phoneSelector 的选择结果相同，每个 topic 的路由在一次请求内只查一次
+     */
+    private MessageQueue selectQueue(String topic, String phone, Map<String, List<MessageQueue>> queuesByTopic) throws MQClientException {
+        List<MessageQueue> queues = queuesByTopic.get(topic);
+        if (queues == null) {
+            queues = smsProducer.fetchPublishMessageQueues(topic);
+            queuesByTopic.put(topic, queues);
+        }
+        return selectQueue(queues, phone);
+    }
+
+    /**
+     * 先按 sms.partition-count 分区再对队列数取模，与 binder 按分区选择队列的方式相同，
+     * 队列数不等于分区数时同一个号码也和 Spring Cloud Stream 发到同一个队列
+     */
+    private MessageQueue selectQueue(List<MessageQueue> queues, String phone) {
+        int partition = SmsMessageHeaders.partition(phone, smsProducerConfig.getPartitionCount());
+        return queues.get(partition % queues.size());
+    }
+
+    private void send(MessageQueue queue, Chunk chunk) {
+        List<BatchItemResultDto> chunkItems = chunk.items;
+        try {
+            // 攒批期间消息还没有发出，发布时间以真正发送的时间为准，长度不变，不影响估算的大小
+            String now = String.valueOf(System.currentTimeMillis());
+            chunk.messages.forEach(message -> message.putUserProperty(SmsMessageHeaders.PUBLISHED_AT, now));
+            smsProducer.send(chunk.messages, queue);
+            chunkItems.forEach(item -> item.setAccepted(true));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            chunkItems.forEach(item -> item.setReason("发送到 RocketMQ 被中断"));
+        } catch (Exception e) {
+            chunkItems.forEach(item -> item.setReason("发送到 RocketMQ 失败：" + e.getMessage()));
+        }
+    }
+
+    /**
+     * 消息体与 Spring Cloud Stream 的 application/json 一致，消费者不需要区分
+     * <p>
+     * 消息唯一键同时作为 RocketMQ 的 keys，可以在控制台按键查询消息
+     */
+    private Message toMessage(MemberPhoneDto memberPhoneDto) {
+        try {
+            Message message = new Message(smsProducerConfig.topic(memberPhoneDto.getType()), objectMapper.writeValueAsBytes(memberPhoneDto));
+            String messageKey = SmsMessageHeaders.newMessageKey();
+            message.setKeys(messageKey);
+            message.putUserProperty(SmsMessageHeaders.MESSAGE_KEY, messageKey);
+            // 单条消息收到请求后马上发送，两个时间相同；批量消息在发送前重新设置发布时间
+            String now = String.valueOf(System.currentTimeMillis());
+            message.putUserProperty(SmsMessageHeaders.ACCEPTED_AT, now);
+            message.putUserProperty(SmsMessageHeaders.PUBLISHED_AT, now);
+            // 上游是调用方当前的 span，同一次批量请求的消息在同一条链路中
+            TraceContext trace = tracer.currentContext();
+            if (trace != null) {
+                message.putUserProperty(SmsMessageHeaders.TRACEPARENT, trace.toTraceparent());
+            }
+            return message;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("消息序列化失败", e);
+        }
+    }
+
+    private static int sizeOf(Message message) {
+        int size = message.getTopic().length() + message.getBody().length + MESSAGE_OVERHEAD;
+        if (message.getProperties() == null) {
+            return size;
+        }
+        for (Map.Entry<String, String> property : message.getProperties().entrySet()) {
+            size += property.getKey().length() + property.getValue().length();
+        }
+        return size;
+    }
+
+    /**
+     * 发往同一个队列的一批消息
+     */
+    private static class Chunk {
+        private final List<Message> messages = new ArrayList<>();
+        private final List<BatchItemResultDto> items = new ArrayList<>();
+        private int bytes;
+
+        void add(Message message, BatchItemResultDto item, int size) {
+            messages.add(message);
+            items.add(item);
+            bytes += size;
+        }
+
+        void clear() {
+            messages.clear();
+            items.clear();
+            bytes = 0;
+        }
+    }
+}
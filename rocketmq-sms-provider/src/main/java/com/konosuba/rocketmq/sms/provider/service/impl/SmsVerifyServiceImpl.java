@@ -0,0 +1,56 @@
+package com.konosuba.rocketmq.sms.provider.service.impl;
+
+import com.konosuba.redis.provider.service.RedisService;
+import com.konosuba.rocketmq.sms.common.redis.SmsRedisKeys;
+import com.konosuba.rocketmq.sms.provider.domain.VerifyResult;
+import com.konosuba.rocketmq.sms.provider.service.SmsVerifyService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.Arrays;
+
+/**
+ * 校验验证码实现类
+ * <p>
+ * 比较、作废和失败计数在 sms_verify.lua 中原子地完成，并发提交同一个验证码只有一个能成功；
+ * 脚本逐字节比较所有字符，耗时不会泄露猜对了几位
+ *
+ * @author konosuba
+ */
+@Service
+public class SmsVerifyServiceImpl implements SmsVerifyService {
+    private static final String SCRIPT = "sms_verify";
+
+    @Resource
+    private RedisService redisService;
+    /**
+     * 最多失败几次，达到后验证码作废
+     */
+    @Value("${sms.provider.verify.max-attempts:5}")
+    private long maxAttempts;
+
+    @Override
+    public VerifyResult verify(String phone, String code) {
+        if (code == null || code.isEmpty()) {
+            return VerifyResult.MISMATCH;
+        }
+        Long result = redisService.executeScript(SCRIPT, Long.class,
+                Arrays.asList(SmsRedisKeys.code(phone), SmsRedisKeys.codeAttempts(phone)), code, maxAttempts);
+        if (result == null) {
+            throw new IllegalStateException("验证码校验脚本没有返回结果");
+        }
+        switch (result.intValue()) {
+            case 1:
+                return VerifyResult.SUCCESS;
+            case 0:
+                return VerifyResult.MISMATCH;
+            case -1:
+                return VerifyResult.EXPIRED;
+            case -2:
+                return VerifyResult.LOCKED;
+            default:
+                throw new IllegalStateException("未知的验证码校验结果：" + result);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+-- 校验验证码，成功后删除，只能使用一次
+-- KEYS[1]：验证码
+-- KEYS[2]：校验失败的次数
+-- ARGV[1]：用户提交的验证码
+-- ARGV[2]：最多失败几次，达到后验证码作废
+-- 返回 1 成功；0 验证码错误；-1 验证码不存在或已过期；-2 失败次数达到上限，验证码作废
+local code = redis.call('GET', KEYS[1])
+if not code then
+    return -1
+end
+
+-- 逐字节比较完所有字符，耗时与第几个字符不同无关
+local input = ARGV[1]
+local diff = 0
+if #code ~= #input then
+    diff = 1
+    input = code
+end
+for i = 1, #code do
+    diff = bit.bor(diff, bit.bxor(string.byte(code, i), string.byte(input, i)))
+end
+
+if diff == 0 then
+    redis.call('DEL', KEYS[1], KEYS[2])
+    return 1
+end
+
+local attempts = redis.call('INCR', KEYS[2])
+if attempts == 1 then
+    local ttl = redis.call('PTTL', KEYS[1])
+    if ttl > 0 then
+        redis.call('PEXPIRE', KEYS[2], ttl)
+    end
+end
+if attempts >= tonumber(ARGV[2]) then
+    redis.call('DEL', KEYS[1], KEYS[2])
+    return -2
+end
+return 0